@@ -3,10 +3,12 @@ package sk.typre.pathfinder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * A* Search Algorithm is a simple and efficient search algorithm that can be used to find the optimal path between two nodes.
+ * When the grid has {@link Landmarks} for the movement, the estimate is the larger of the heuristic and the landmark bound.
  */
 
 public class AStarAlgorithm {
@@ -19,39 +21,83 @@ public class AStarAlgorithm {
      * @return Path composed of vertices represented as array list.
      */
     public static List<int[]> getPath(int[][] intMaze, int[] start, int[] end, boolean diagonal) {
+        return getPath(new BitGrid(intMaze), start, end, diagonal);
+    }
+
+    /**
+     * Calculate the path from the start position start(y,x) to the destiny position end(y,x).
+     *
+     * @param grid  Maze grid.
+     * @param start Start position vertex array.
+     * @param end   End position vertex array.
+     * @return Path composed of vertices represented as array list.
+     */
+    public static List<int[]> getPath(Grid grid, int[] start, int[] end, boolean diagonal) {
+        return getPath(grid, start, end, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * Calculate the path from the start position start(y,x) to the destiny position end(y,x).
+     *
+     * @param grid      Maze grid.
+     * @param start     Start position vertex array.
+     * @param end       End position vertex array.
+     * @param heuristic Estimate of the remaining cost.
+     * @return Path composed of vertices represented as array list.
+     */
+    public static List<int[]> getPath(Grid grid, int[] start, int[] end, boolean diagonal, Heuristic heuristic) {
+        return getPath(grid, start, end, diagonal, heuristic, null);
+    }
+
+    /**
+     * Calculate the path from the start position start(y,x) to the destiny position end(y,x).
+     *
+     * @param grid       Maze grid.
+     * @param start      Start position vertex array.
+     * @param end        End position vertex array.
+     * @param heuristic  Estimate of the remaining cost.
+     * @param statistics Receives the counters of the search, may be null.
+     * @return Path composed of vertices represented as array list.
+     */
+    public static List<int[]> getPath(Grid grid, int[] start, int[] end, boolean diagonal, Heuristic heuristic,
+                                      SearchStatistics statistics) {
+        int expanded = 0, generated = 1, reopened = 0, peakOpenSize = 1;
+        int height = grid.getHeight();
+        int width = grid.getWidth();
         //Create start and end node
         Node start_node = new Node(null, start);
         start_node.g = start_node.h = start_node.f = 0;
         Node end_node = new Node(null, end);
         end_node.g = end_node.h = end_node.f = 0;
-        //Initialize both open and closed list
-        List<Node> open_list = new ArrayList<>();
-        List<Node> closed_list = new ArrayList<>();
+        int end_cell = end[0] * width + end[1];
+        Landmarks landmarks = grid.getLandmarks(diagonal);
+        //Initialize the open list, the open node lookup and the closed bitmap keyed by y*width+x
+        OpenList open_list = new OpenList();
+        Node[] open_nodes = new Node[height * width];
+        long[] closed = new long[(height * width + 63) >>> 6];
         //Add the start node
         open_list.add(start_node);
+        open_nodes[start[0] * width + start[1]] = start_node;
         //Loop until find the end
         while (!open_list.isEmpty()) {
-            //Get the current node
-            Node current_node = open_list.get(0);
-            int current_index = 0;
-            for (int i = 0; i < open_list.size(); i++) {
-                Node item = open_list.get(i);
-                if (item.f < current_node.f) {
-                    current_node = item;
-                    current_index = i;
-                }
-            }
             //Pop current off open list, add to closed list
-            open_list.remove(current_index);
-            closed_list.add(current_node);
+            Node current_node = open_list.poll();
+            int current_cell = current_node.position[0] * width + current_node.position[1];
+            open_nodes[current_cell] = null;
+            closed[current_cell >>> 6] |= 1L << current_cell;
+            expanded++;
             //Found the goal
             if (current_node.equals(end_node)) {
+                if (statistics != null) {
+                    statistics.set(expanded, generated, reopened, peakOpenSize);
+                }
                 List<int[]> path = new ArrayList<>();
                 Node current = current_node;
                 while (current != null) {
-                    path.add(0, current.position);
+                    path.add(current.position);
                     current = current.parent;
                 }
+                Collections.reverse(path);
                 return path;
             }
             //Generate children
@@ -68,12 +114,12 @@ public class AStarAlgorithm {
                 int[] new_pos = {current_node.position[0] + new_position[0], current_node.position[1] + new_position[1]};
 
                 //Make sure within range
-                if (new_pos[0] > intMaze.length - 1 || new_pos[0] < 0 || new_pos[1] > intMaze[intMaze.length - 1].length - 1 || new_pos[1] < 0) {
+                if (new_pos[0] > height - 1 || new_pos[0] < 0 || new_pos[1] > width - 1 || new_pos[1] < 0) {
                     continue;
                 }
 
                 //Make sure walkable terrain
-                if (intMaze[new_pos[0]][new_pos[1]] != 0) {
+                if (grid.isSolid(new_pos[0], new_pos[1])) {
                     continue;
                 }
 
@@ -83,19 +129,19 @@ public class AStarAlgorithm {
                     int cx = current_node.position[1];
 
                     if (new_position[0] == -1 && new_position[1] == -1) {
-                        if (intMaze[cy][cx - 1] != 0 && intMaze[cy - 1][cx] != 0) {
+                        if (grid.isSolid(cy, cx - 1) && grid.isSolid(cy - 1, cx)) {
                             continue;
                         }
                     } else if (new_position[0] == -1 && new_position[1] == 1) {
-                        if (intMaze[cy - 1][cx] != 0 && intMaze[cy][cx + 1] != 0) {
+                        if (grid.isSolid(cy - 1, cx) && grid.isSolid(cy, cx + 1)) {
                             continue;
                         }
                     } else if (new_position[0] == 1 && new_position[1] == -1) {
-                        if (intMaze[cy][cx - 1] != 0 && intMaze[cy + 1][cx] != 0) {
+                        if (grid.isSolid(cy, cx - 1) && grid.isSolid(cy + 1, cx)) {
                             continue;
                         }
                     } else if (new_position[0] == 1 && new_position[1] == 1) {
-                        if (intMaze[cy + 1][cx] != 0 && intMaze[cy][cx + 1] != 0) {
+                        if (grid.isSolid(cy + 1, cx) && grid.isSolid(cy, cx + 1)) {
                             continue;
                         }
                     }
@@ -107,32 +153,45 @@ public class AStarAlgorithm {
                 children.add(new_node);
             }
             //Loop through children
-            cont:
             for (Node child : children) {
+                int child_cell = child.position[0] * width + child.position[1];
                 //Child is on the closed list
-                for (Node closed_child : closed_list) {
-                    if (child.equals(closed_child)) {
-                        continue cont;
-                    }
+                if ((closed[child_cell >>> 6] & (1L << child_cell)) != 0) {
+                    continue;
                 }
 
                 //Create the f, g, and h values
                 child.g = current_node.g + 1;
-                if (!diagonal) {
-                    child.h = Math.abs(child.position[0] - end_node.position[0]) + Math.abs(child.position[1] - end_node.position[1]);
+                child.h = heuristic.estimate(Math.abs(child.position[0] - end_node.position[0]), Math.abs(child.position[1] - end_node.position[1]), 1, 1);
+                if (landmarks != null) {
+                    child.h = Math.max(child.h, landmarks.estimate(child_cell, end_cell));
                 }
                 child.f = child.g + child.h;
 
                 //Child is already in the open list
-                for (Node open_node : open_list) {
-                    if (child.equals(open_node) && child.g >= open_node.g) {
-                        continue cont;
+                Node open_node = open_nodes[child_cell];
+                if (open_node != null) {
+                    if (child.g >= open_node.g) {
+                        continue;
                     }
+                    //Found a shorter way to the open node, decrease its key
+                    open_node.parent = current_node;
+                    open_node.g = child.g;
+                    open_node.f = child.f;
+                    open_list.decreaseKey(open_node);
+                    reopened++;
+                    continue;
                 }
                 //Add the child to the open list
                 open_list.add(child);
+                open_nodes[child_cell] = child;
+                generated++;
+                peakOpenSize = Math.max(peakOpenSize, open_list.size);
             }
         }
+        if (statistics != null) {
+            statistics.set(expanded, generated, reopened, peakOpenSize);
+        }
         return null;
     }
 
@@ -143,6 +202,7 @@ public class AStarAlgorithm {
         public Node parent;
         public int[] position;
         public int g, h, f;
+        public int heapIndex;
 
         public Node(Node parent, int[] position) {
             this.parent = parent;
@@ -157,4 +217,82 @@ public class AStarAlgorithm {
         }
     }
 
+    /**
+     * The nested open list used by this Algorithm, a binary min-heap ordered by f (ties by h)
+     * where every node knows its heap index, so a decrease-key is a single sift up.
+     */
+    private static class OpenList {
+        private Node[] heap = new Node[64];
+        private int size;
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void add(Node node) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size << 1);
+            }
+            node.heapIndex = size;
+            heap[size++] = node;
+            siftUp(node.heapIndex);
+        }
+
+        public Node poll() {
+            Node first = heap[0];
+            Node last = heap[--size];
+            heap[size] = null;
+            if (size > 0) {
+                heap[0] = last;
+                last.heapIndex = 0;
+                siftDown(0);
+            }
+            return first;
+        }
+
+        public void decreaseKey(Node node) {
+            siftUp(node.heapIndex);
+        }
+
+        private boolean less(Node a, Node b) {
+            return a.f < b.f || (a.f == b.f && a.h < b.h);
+        }
+
+        private void siftUp(int index) {
+            Node node = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                Node parent_node = heap[parent];
+                if (!less(node, parent_node)) {
+                    break;
+                }
+                heap[index] = parent_node;
+                parent_node.heapIndex = index;
+                index = parent;
+            }
+            heap[index] = node;
+            node.heapIndex = index;
+        }
+
+        private void siftDown(int index) {
+            Node node = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = (index << 1) + 1;
+                int right = child + 1;
+                if (right < size && less(heap[right], heap[child])) {
+                    child = right;
+                }
+                if (!less(heap[child], node)) {
+                    break;
+                }
+                heap[index] = heap[child];
+                heap[index].heapIndex = index;
+                index = child;
+            }
+            heap[index] = node;
+            node.heapIndex = index;
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package sk.typre.pathfinder;
+
+/**
+ * Allocation free variant of the A* Search Algorithm.
+ * <p>
+ * All per-cell state lives in a reusable {@link SearchState}, so after the first search on a map
+ * of a given size the search loop does not allocate. When the grid has {@link Landmarks} for the
+ * movement, the estimate is the larger of the heuristic and the landmark bound. An instance is not
+ * thread safe, use one instance per thread.
+ */
+public class AStarSearch {
+    private static final int STRAIGHT_COST = 1;
+    private static final int DIAGONAL_COST = 1;
+
+    private final SearchState state = new SearchState();
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal) {
+        return findPath(grid, startCell, endCell, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @param heuristic Estimate of the remaining cost.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal, Heuristic heuristic) {
+        SearchState state = this.state;
+        int width = grid.getWidth();
+        state.prepare(grid.getCellCount());
+
+        int endY = endCell / width;
+        int endX = endCell - endY * width;
+        Landmarks landmarks = grid.getLandmarks(diagonal);
+
+        int startH = heuristic.estimate(Math.abs(startCell / width - endY), Math.abs(startCell % width - endX), STRAIGHT_COST, DIAGONAL_COST);
+        state.open(startCell, 0, landmarks == null ? startH : Math.max(startH, landmarks.estimate(startCell, endCell)), startCell);
+        while (!state.isEmpty()) {
+            int current = state.poll();
+            if (current == endCell) {
+                return state.buildPath(startCell, endCell);
+            }
+            int cy = current / width;
+            int cx = current - cy * width;
+            int straightG = state.g[current] + STRAIGHT_COST;
+            int diagonalG = state.g[current] + DIAGONAL_COST;
+
+            int moves = grid.neighbours(cy, cx, diagonal);
+            while (moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int ny = cy + Grid.DIRECTION_Y[d];
+                int nx = cx + Grid.DIRECTION_X[d];
+                int child = ny * width + nx;
+                if (!state.isClosed(child)) {
+                    int h = heuristic.estimate(Math.abs(ny - endY), Math.abs(nx - endX), STRAIGHT_COST, DIAGONAL_COST);
+                    if (landmarks != null) {
+                        h = Math.max(h, landmarks.estimate(child, endCell));
+                    }
+                    state.relax(child, d < 4 ? straightG : diagonalG, h, current);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of cells expanded by the last search.
+     */
+    public int getExpandedCount() {
+        return state.getExpanded();
+    }
+
+    /**
+     * @return the counters of the last search.
+     */
+    public SearchStatistics getStatistics() {
+        return state.getStatistics();
+    }
+}
@@ -1,102 +1,139 @@
 package sk.typre.pathfinder;
 
 import java.io.*;
+import java.util.Arrays;
 
 public abstract class AbstractFindPathInputReader {
 
-    private final char[][] MAP;
+    private final Maze MAZE;
     private final InputType INPUT_TYPE;
+    private String error;
 
     public AbstractFindPathInputReader(File file) {
-        this.INPUT_TYPE = InputType.FILE;
-        MAP = loadFileMap(file);
+        this(file, InputType.FILE);
+    }
+
+    protected AbstractFindPathInputReader(File file, InputType inputType) {
+        this.INPUT_TYPE = inputType;
+        MAZE = inputType == InputType.BINARY_FILE ? loadBinaryMap(file) : loadFileMap(file);
     }
 
     public AbstractFindPathInputReader(InputStream stringMap) {
         this.INPUT_TYPE = InputType.CONSOLE;
-        MAP = loadCharMap(stringMap);
+        MAZE = loadCharMap(stringMap);
     }
     /**
      * Reads the map from the File.
      *
      * @param file any file contains map.
-     * @return map represented as char array.
+     * @return the loaded maze.
      */
-    private char[][] loadFileMap(File file) {
-        char[][] map;
+    private Maze loadFileMap(File file) {
+        Maze maze;
+        try (InputStream input = new FileInputStream(file)) {
+            maze = loadMap(input);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return maze;
+    }
+    /**
+     * Memory-maps the map from the binary map File.
+     *
+     * @param file binary map file.
+     * @return the maze read in place from the file.
+     */
+    private Maze loadBinaryMap(File file) {
+        long start = Metrics.start();
         try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-            map = loadMap(bufferedReader);
-            bufferedReader.close();
+            return BinaryMapFile.map(file);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            Metrics.phase(Phase.PARSE, start);
         }
-        return map;
     }
     /**
-     * Reads the map from the InputStream.
+     * Reads the map from the InputStream, the stream is read ahead on another thread while the map is parsed.
      *
      * @param inputStream an InputStream.
-     * @return map represented as char array.
+     * @return the loaded maze.
      */
-    private char[][] loadCharMap(InputStream inputStream) {
-        char[][] map;
-        try {
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-            map = loadMap(bufferedReader);
-            bufferedReader.close();
+    private Maze loadCharMap(InputStream inputStream) {
+        Maze maze;
+        try (InputStream input = new PrefetchInputStream(inputStream)) {
+            maze = loadMap(input);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        return map;
+        return maze;
     }
 
     /**
-     * Reads the map from the BufferedReader.
+     * Reads the map from the InputStream in a single pass as the bytes arrive. Every byte is one map
+     * character, so no charset decoding is done. Each row is checked and written straight into the grid,
+     * the reading stops at the first wrong row and {@link #getError()} tells the line and column.
      *
-     * @param bufferedReader an BufferedReader.
-     * @return map represented as char array.
+     * @param input an InputStream.
+     * @return the loaded maze, or null if the map is not in the correct format.
      */
+    private Maze loadMap(InputStream input) throws IOException {
+        long start = Metrics.start();
+        MazeBuilder builder = new MazeBuilder();
+        byte[] buffer = new byte[1 << 16];
+        char[] line = new char[256];
+        int lineLength = 0;
+        boolean valid = true;
+        boolean done = false;
 
-    private char[][] loadMap(BufferedReader bufferedReader) {
-        char[][] temp = new char[256][256];
-        boolean init = true;
-        int mazeWidth = 0;
-        int posY = 0;
-
-        String mapLine;
-        try {
-            while ((mapLine = bufferedReader.readLine()) != null) {
-                if (INPUT_TYPE == InputType.CONSOLE && mapLine.toLowerCase().matches("done")) {
-                    break;
-                }
-                if (init) {
-                    init = false;
-                    mazeWidth = mapLine.length();
-                    if (mazeWidth > 256){
-                        return null;
+        int read;
+        reading:
+        while ((read = input.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = (char) (buffer[i] & 0xFF);
+                if (c == '\n') {
+                    if (isDone(line, lineLength)) {
+                        done = true;
+                        break reading;
                     }
-                } else if (mazeWidth != mapLine.length()) {
-                    return null;
+                    if (!(valid = builder.addRow(line, lineLength))) {
+                        break reading;
+                    }
+                    lineLength = 0;
+                } else if (c != '\r') {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, lineLength << 1);
+                    }
+                    line[lineLength++] = c;
                 }
-                char[] line = mapLine.toCharArray();
-                System.arraycopy(line, 0, temp[posY], 0, line.length);
-                posY++;
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
-
-        char[][] reduced = new char[posY][mazeWidth];
-        for (int n = 0; n < posY; n++) {
-            System.arraycopy(temp[n], 0, reduced[n], 0, mazeWidth);
+        if (valid && !done && lineLength > 0 && !isDone(line, lineLength)) {
+            valid = builder.addRow(line, lineLength);
         }
 
-        return reduced;
+        Maze maze = valid ? builder.build() : null;
+        error = builder.getError();
+        Metrics.phase(Phase.PARSE, start);
+        return maze;
     }
 
-    public char[][] getCharMap() {
-        return MAP;
+    /**
+     * Checks the line is the DONE line which ends the console input.
+     */
+    private boolean isDone(char[] line, int lineLength) {
+        return INPUT_TYPE == InputType.CONSOLE && lineLength == 4 && new String(line, 0, lineLength).equalsIgnoreCase("done");
+    }
+
+    public Maze getMaze() {
+        return MAZE;
+    }
+
+    /**
+     * @return the reason the map was rejected with its line and column, or null if the map was loaded.
+     */
+    public String getError() {
+        return error;
     }
 
 }
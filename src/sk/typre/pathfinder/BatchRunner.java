@@ -0,0 +1,341 @@
+package sk.typre.pathfinder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves every map of a directory or a glob without prompts and writes one CSV or JSON record per map.
+ * <p>
+ * The maps are read with the same readers as the console, {@link FindPathInputReaderFile} and for .pfm files
+ * {@link FindPathInputReaderBinary}, and solved with {@link PathFinder#solve}. Each worker thread loads and
+ * solves one map at a time, so at most one map per thread is held in memory. The records are written in the
+ * order of the file names as soon as all maps before them are done.
+ * <p>
+ * With {@code -landmarks N} the {@link Landmarks} of every map are kept in a file next to it and used by A*,
+ * later runs over the same maps read them instead of building them.
+ * <p>
+ * Usage: {@code BatchRunner [-diagonal] [-algorithm NAME] [-threads N] [-landmarks N] [-format csv|json] [-output file] <directory|glob>}
+ * <p>
+ * The exit status is 1 if any map could not be loaded or solved.
+ */
+public class BatchRunner {
+    private static final String USAGE = "Usage: BatchRunner [-diagonal] [-algorithm NAME] [-threads N] [-landmarks N] [-format csv|json] [-output file] <directory|glob>";
+    private static final String[] COLUMNS = {"file", "width", "height", "found", "cost", "steps", "expanded", "load_ms", "solve_ms", "error"};
+
+    private final SearchOptions options;
+    private final int threads;
+    private final boolean json;
+    private final int landmarkCount;
+
+    /**
+     * @param options Search options of every map.
+     * @param threads Number of maps solved at once.
+     * @param json    Write JSON instead of CSV.
+     */
+    public BatchRunner(SearchOptions options, int threads, boolean json) {
+        this(options, threads, json, 0);
+    }
+
+    /**
+     * @param options       Search options of every map.
+     * @param threads       Number of maps solved at once.
+     * @param json          Write JSON instead of CSV.
+     * @param landmarkCount Number of landmarks of every map, 0 without landmarks.
+     */
+    public BatchRunner(SearchOptions options, int threads, boolean json, int landmarkCount) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.options = options;
+        this.threads = threads;
+        this.json = json;
+        this.landmarkCount = landmarkCount;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean diagonal = false;
+        SearchAlgorithm algorithm = SearchAlgorithm.PRIMITIVE_A_STAR;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int landmarks = 0;
+        boolean json = false;
+        String output = null;
+        String source = null;
+        List<File> files;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-diagonal")) {
+                    diagonal = true;
+                } else if (arg.equals("-algorithm")) {
+                    String name = value(args, ++i, arg);
+                    try {
+                        algorithm = SearchAlgorithm.valueOf(name.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown algorithm " + name + ".");
+                    }
+                } else if (arg.equals("-threads")) {
+                    threads = number(args, ++i, arg);
+                    if (threads <= 0) {
+                        throw new IllegalArgumentException("Thread count must be positive.");
+                    }
+                } else if (arg.equals("-landmarks")) {
+                    landmarks = number(args, ++i, arg);
+                    if (landmarks < 0) {
+                        throw new IllegalArgumentException("Landmark count must not be negative.");
+                    }
+                } else if (arg.equals("-format")) {
+                    String format = value(args, ++i, arg);
+                    if (!format.equalsIgnoreCase("json") && !format.equalsIgnoreCase("csv")) {
+                        throw new IllegalArgumentException("Unknown format " + format + ".");
+                    }
+                    json = format.equalsIgnoreCase("json");
+                } else if (arg.equals("-output")) {
+                    output = value(args, ++i, arg);
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option " + arg + ".");
+                } else if (source != null) {
+                    throw new IllegalArgumentException("Only one directory or glob is allowed.");
+                } else {
+                    source = arg;
+                }
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("Missing directory or glob.");
+            }
+            files = listFiles(source);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        BatchRunner runner = new BatchRunner(new SearchOptions(diagonal, algorithm), threads, json, landmarks);
+        boolean failed;
+        try (Writer writer = new BufferedWriter(output == null ? new OutputStreamWriter(System.out) : new FileWriter(output), 1 << 16)) {
+            failed = runner.run(files, writer) > 0;
+        }
+        if (output != null) {
+            System.out.println("Solved " + files.size() + " maps into " + output + ".");
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * @return the value of the option, the argument at the index.
+     * @throws IllegalArgumentException if the value is missing.
+     */
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + option + ".");
+        }
+        return args[index];
+    }
+
+    private static int number(String[] args, int index, String option) {
+        String value = value(args, index, option);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number " + value + " for " + option + ".");
+        }
+    }
+
+    /**
+     * Lists the files of the directory, or the files matching the glob, for example {@code maps/*.txt}.
+     * Only the last name of the source may be a glob, it is split off before the rest is parsed as a path,
+     * because {@code *} and {@code ?} are not allowed in the paths of every file system.
+     * The {@link Landmarks} files kept next to the maps are left out.
+     *
+     * @return the files sorted by name.
+     * @throws java.nio.file.InvalidPathException if the directory of the source is not a valid path.
+     */
+    public static List<File> listFiles(String source) throws IOException {
+        int slash = Math.max(source.lastIndexOf('/'), source.lastIndexOf(File.separatorChar));
+        String glob = source.substring(slash + 1);
+        Path path = slash < 0 ? Paths.get(".") : Paths.get(source.substring(0, slash + 1));
+        if (glob.isEmpty()) {
+            glob = "*";
+        } else if (!isGlob(glob)) {
+            Path named = Paths.get(source);
+            if (Files.isRegularFile(named)) {
+                return Collections.singletonList(named.toFile());
+            }
+            if (Files.isDirectory(named)) {
+                path = named;
+                glob = "*";
+            }
+        }
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && !file.getFileName().toString().endsWith(Landmarks.EXTENSION)) {
+                    files.add(file.toFile());
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static boolean isGlob(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if ("*?[{".indexOf(name.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solves the maps and writes their records.
+     *
+     * @return the number of maps which could not be loaded or solved.
+     */
+    public int run(List<File> files, Writer writer) throws IOException, InterruptedException {
+        PrintWriter out = new PrintWriter(writer);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int failed = 0;
+        try {
+            List<Future<String[]>> records = new ArrayList<>(files.size());
+            for (File file : files) {
+                records.add(executor.submit(() -> solve(file)));
+            }
+            out.print(json ? "[" : String.join(",", COLUMNS) + "\n");
+            for (int i = 0; i < records.size(); i++) {
+                String[] record;
+                try {
+                    record = records.get(i).get();
+                } catch (ExecutionException e) {
+                    record = failure(files.get(i), String.valueOf(e.getCause()));
+                }
+                if (!record[COLUMNS.length - 1].isEmpty()) {
+                    failed++;
+                }
+                out.print(json ? (i > 0 ? ",\n" : "\n") + toJson(record) : toCsv(record) + "\n");
+                records.set(i, null);
+            }
+            out.print(json ? "\n]\n" : "");
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Writing the results failed.");
+        }
+        return failed;
+    }
+
+    /**
+     * Loads and solves one map.
+     *
+     * @return the record of the map in the {@link #COLUMNS} order.
+     */
+    private String[] solve(File file) {
+        long start = System.nanoTime();
+        AbstractFindPathInputReader reader;
+        try {
+            reader = Main.createFileReader(file);
+        } catch (RuntimeException e) {
+            return failure(file, String.valueOf(e.getCause() != null ? e.getCause() : e));
+        }
+        Maze maze = reader.getMaze();
+        if (maze == null) {
+            return failure(file, reader.getError() != null ? "Wrong map format. " + reader.getError() : "Wrong map format.");
+        }
+        Grid grid = maze.getGrid();
+        if (landmarkCount > 0 && maze.getCosts() == null) {
+            try {
+                grid.setLandmarks(Landmarks.load(file, grid, landmarkCount, options.isDiagonal()));
+            } catch (IOException e) {
+                grid.setLandmarks(Landmarks.build(grid, landmarkCount, options.isDiagonal()));
+            }
+        }
+        long loadNanos = System.nanoTime() - start;
+        String[] record = failure(file, "");
+        record[1] = String.valueOf(grid.getWidth());
+        record[2] = String.valueOf(grid.getHeight());
+        record[7] = millis(loadNanos);
+        try {
+            PathResult result = PathFinder.solve(maze, options);
+            record[3] = String.valueOf(result.isFound());
+            record[4] = String.valueOf(result.getCost());
+            record[5] = String.valueOf(result.isFound() ? result.getPath().length - 1 : -1);
+            record[6] = String.valueOf(result.getExpandedCount());
+            record[8] = millis(result.getSolveNanos());
+        } catch (IllegalArgumentException e) {
+            record[9] = e.getMessage();
+        }
+        return record;
+    }
+
+    private static String[] failure(File file, String error) {
+        return new String[]{file.getPath(), "", "", "", "", "", "", "", "", error};
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String toCsv(String[] record) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < record.length; i++) {
+            String value = record[i];
+            if (i > 0) {
+                stringBuilder.append(',');
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                stringBuilder.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                stringBuilder.append(value);
+            }
+        }
+        return stringBuilder.toString();
+    }
+
+    private static String toJson(String[] record) {
+        StringBuilder stringBuilder = new StringBuilder("  {");
+        for (int i = 0; i < record.length; i++) {
+            String value = record[i];
+            if (value.isEmpty() && i != 0) {
+                continue;
+            }
+            if (stringBuilder.length() > 3) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append('"').append(COLUMNS[i]).append("\": ");
+            if (i == 0 || i == COLUMNS.length - 1) {
+                stringBuilder.append('"');
+                for (char c : value.toCharArray()) {
+                    if (c == '"' || c == '\\') {
+                        stringBuilder.append('\\').append(c);
+                    } else if (c < 0x20) {
+                        stringBuilder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        stringBuilder.append(c);
+                    }
+                }
+                stringBuilder.append('"');
+            } else {
+                stringBuilder.append(value);
+            }
+        }
+        return stringBuilder.append('}').toString();
+    }
+}
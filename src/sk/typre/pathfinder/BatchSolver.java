@@ -0,0 +1,101 @@
+package sk.typre.pathfinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Solves batches of path queries in parallel.
+ * <p>
+ * Every query runs as a task on the executor, a ForkJoinPool or a virtual thread per task executor
+ * for example. The tasks borrow a {@link PathSolver} from an idle pool and return it when done, so the
+ * search buffers are reused whatever threads the executor uses and there are never more solvers than
+ * queries running at once. Queries may share one grid, the grids of a batch are labeled with
+ * {@link Grid#labelComponents()} first, so queries between disconnected regions are answered without a search.
+ * All solvers may share one {@link PathCache}.
+ */
+public class BatchSolver {
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<PathSolver> idleSolvers = new ConcurrentLinkedQueue<>();
+    private final PathCache cache;
+
+    /**
+     * Batch solver running on the common ForkJoinPool.
+     */
+    public BatchSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchSolver(Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * @param executor Executor running the queries.
+     * @param cache    Cache of the solved paths shared by the solvers, null to search every query.
+     */
+    public BatchSolver(Executor executor, PathCache cache) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is required.");
+        }
+        this.executor = executor;
+        this.cache = cache;
+    }
+
+    /**
+     * Solves one query on the executor.
+     */
+    public CompletableFuture<PathResult> submit(PathQuery query) {
+        return CompletableFuture.supplyAsync(() -> solve(query), executor);
+    }
+
+    /**
+     * Solves all queries on the executor.
+     *
+     * @return future completed with the results in the order of the queries.
+     */
+    public CompletableFuture<List<PathResult>> solveAll(List<PathQuery> queries) {
+        List<CompletableFuture<PathResult>> futures = submitAll(queries);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<PathResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<PathResult> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Solves all queries on the executor.
+     *
+     * @return stream of the results in the order of the queries, blocking until each one is solved.
+     */
+    public Stream<PathResult> stream(List<PathQuery> queries) {
+        return submitAll(queries).stream().map(CompletableFuture::join);
+    }
+
+    private List<CompletableFuture<PathResult>> submitAll(List<PathQuery> queries) {
+        List<CompletableFuture<PathResult>> futures = new ArrayList<>(queries.size());
+        for (PathQuery query : queries) {
+            query.getGrid().labelComponents();
+            futures.add(submit(query));
+        }
+        return futures;
+    }
+
+    private PathResult solve(PathQuery query) {
+        PathSolver solver = idleSolvers.poll();
+        if (solver == null) {
+            solver = new PathSolver(cache);
+        }
+        try {
+            return solver.solve(query);
+        } finally {
+            idleSolvers.offer(solver);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bidirectional A*, one A* frontier grows from the start cell towards the end cell and another one
+ * from the end cell towards the start cell.
+ * <p>
+ * The steps and the corner rule are the ones of {@link AStarSearch}, and as they are symmetric the backward
+ * frontier walks the same grid. Whenever a frontier reaches a cell the other one has reached, the sum of both
+ * costs is a path and the shortest one is kept as mu. A polled cell is dropped without expanding when the other
+ * frontier has already expanded it, or when {@code g + F - h'} is not lower than mu, where F is the lowest f of
+ * the other open set and h' the estimate back to the own start cell, no shorter path can pass through it then
+ * (New Bidirectional A*). The search stops once the lowest f of either open set is not lower than mu, so with an
+ * admissible and consistent heuristic the path is optimal.
+ * <p>
+ * On a single core the frontiers take turns and the smaller open set is expanded next. On large maps with
+ * more cores the backward frontier runs on a helper thread. Both frontiers expand a round of cells using mu and
+ * the lowest f of the other side from the last meeting, then meet at a barrier where mu is updated and the stop
+ * condition checked, and continue.
+ * <p>
+ * An instance is not thread safe, use one instance per thread.
+ */
+public class BidirectionalSearch {
+    private static final int STRAIGHT_COST = 1;
+    private static final int DIAGONAL_COST = 1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    /**
+     * Smallest map searched with two threads, below it the thread hand-off costs more than it saves.
+     */
+    private static final int PARALLEL_CELLS = 1 << 16;
+    /**
+     * Cells each frontier expands between two meetings of the threads.
+     */
+    private static final int ROUND = 256;
+    private static final ExecutorService HELPER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "bidirectional-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Frontier forward = new Frontier();
+    private final Frontier backward = new Frontier();
+    private final boolean parallel;
+    private Grid grid;
+    private boolean diagonal;
+    private Heuristic heuristic;
+    private int best;
+    private int forwardLowestF;
+    private int backwardLowestF;
+    private int meetCell;
+    private boolean done;
+
+    /**
+     * Creates the search which uses two threads when more than one processor is available.
+     */
+    public BidirectionalSearch() {
+        this(Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    /**
+     * @param parallel Run the frontiers on two threads on large maps.
+     */
+    public BidirectionalSearch(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal) {
+        return findPath(grid, startCell, endCell, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @param heuristic Estimate of the remaining cost, used towards the end cell and towards the start cell.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal, Heuristic heuristic) {
+        this.grid = grid;
+        this.diagonal = diagonal;
+        this.heuristic = heuristic;
+        best = INFINITY;
+        meetCell = -1;
+        done = false;
+        try {
+            forward.start(grid, startCell, endCell, heuristic);
+            backward.start(grid, endCell, startCell, heuristic);
+            exchange();
+            if (parallel && grid.getCellCount() >= PARALLEL_CELLS) {
+                searchParallel();
+            } else {
+                searchAlternating();
+            }
+            if (meetCell == -1) {
+                return null;
+            }
+            int[] head = forward.state.buildPath(startCell, meetCell);
+            int[] tail = backward.state.buildPath(endCell, meetCell);
+            int[] path = new int[head.length + tail.length - 1];
+            System.arraycopy(head, 0, path, 0, head.length);
+            for (int i = 1; i < tail.length; i++) {
+                path[head.length + i - 1] = tail[tail.length - 1 - i];
+            }
+            return path;
+        } finally {
+            this.grid = null;
+            this.heuristic = null;
+        }
+    }
+
+    /**
+     * @return the number of cells expanded by both frontiers in the last search.
+     */
+    public int getExpandedCount() {
+        return forward.getExpanded() + backward.getExpanded();
+    }
+
+    /**
+     * @return the counters of the last search, summed over both frontiers.
+     */
+    public SearchStatistics getStatistics() {
+        SearchStatistics forwardStatistics = forward.state.getStatistics();
+        SearchStatistics backwardStatistics = backward.state.getStatistics();
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.set(forward.getExpanded() + backward.getExpanded(),
+                forwardStatistics.getGeneratedCount() + backwardStatistics.getGeneratedCount(),
+                forwardStatistics.getReopenedCount() + backwardStatistics.getReopenedCount(),
+                forwardStatistics.getPeakOpenSize() + backwardStatistics.getPeakOpenSize());
+        return statistics;
+    }
+
+    private void searchAlternating() {
+        while (!done) {
+            if (forward.state.getOpenSize() <= backward.state.getOpenSize()) {
+                forward.expand(grid, diagonal, heuristic, 1, best, backwardLowestF, backward.state);
+            } else {
+                backward.expand(grid, diagonal, heuristic, 1, best, forwardLowestF, forward.state);
+            }
+            exchange();
+        }
+    }
+
+    private void searchParallel() {
+        CyclicBarrier barrier = new CyclicBarrier(2, this::exchange);
+        Future<?> helper = HELPER.submit(() -> expandRounds(backward, barrier));
+        expandRounds(forward, barrier);
+        try {
+            helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Expands rounds of the frontier until the search is done, the barrier action runs {@link #exchange()}
+     * while both threads wait, so the fields it writes are visible to both after the barrier.
+     */
+    private void expandRounds(Frontier frontier, CyclicBarrier barrier) {
+        try {
+            while (!done) {
+                frontier.expand(grid, diagonal, heuristic, ROUND, best, frontier == forward ? backwardLowestF : forwardLowestF, null);
+                barrier.await();
+            }
+        } catch (InterruptedException e) {
+            barrier.reset();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (BrokenBarrierException e) {
+            throw new IllegalStateException(e);
+        } catch (RuntimeException e) {
+            barrier.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Updates mu with the cells the frontiers touched since the last exchange and checks the stop condition.
+     */
+    private void exchange() {
+        meet(forward, backward);
+        meet(backward, forward);
+        forwardLowestF = forward.lowestF();
+        backwardLowestF = backward.lowestF();
+        done = forwardLowestF >= best || backwardLowestF >= best;
+    }
+
+    private void meet(Frontier frontier, Frontier other) {
+        int[] touched = frontier.touched;
+        for (int i = 0; i < frontier.touchedCount; i++) {
+            int cell = touched[i];
+            if (other.state.isReached(cell)) {
+                int cost = frontier.state.g[cell] + other.state.g[cell];
+                if (cost < best) {
+                    best = cost;
+                    meetCell = cell;
+                }
+            }
+        }
+        frontier.touchedCount = 0;
+    }
+
+    /**
+     * One direction of the search with the cells it opened or improved since the last exchange.
+     */
+    private static final class Frontier {
+        final SearchState state = new SearchState();
+        int[] touched = new int[64];
+        int touchedCount;
+        int rejected;
+        int width;
+        int startY;
+        int startX;
+        int targetY;
+        int targetX;
+
+        void start(Grid grid, int startCell, int targetCell, Heuristic heuristic) {
+            width = grid.getWidth();
+            startY = startCell / width;
+            startX = startCell % width;
+            targetY = targetCell / width;
+            targetX = targetCell % width;
+            touchedCount = 0;
+            rejected = 0;
+            state.prepare(grid.getCellCount());
+            state.open(startCell, 0, estimate(heuristic, startY, startX, targetY, targetX), startCell);
+            touch(startCell);
+        }
+
+        int lowestF() {
+            return state.isEmpty() ? INFINITY : state.peekF();
+        }
+
+        /**
+         * @return the number of polled cells which were expanded and not dropped.
+         */
+        int getExpanded() {
+            return state.getExpanded() - rejected;
+        }
+
+        /**
+         * Polls at most limit cells, it stops early when the lowest f reaches the bound.
+         *
+         * @param bound        Cost of the shortest known path.
+         * @param otherLowestF Lowest f of the other frontier.
+         * @param other        State of the other frontier, its expanded cells are skipped, null when it
+         *                     runs on another thread.
+         */
+        void expand(Grid grid, boolean diagonal, Heuristic heuristic, int limit, int bound, int otherLowestF, SearchState other) {
+            SearchState state = this.state;
+            int width = this.width;
+            for (int n = 0; n < limit && !state.isEmpty() && state.peekF() < bound; n++) {
+                int current = state.poll();
+                int cy = current / width;
+                int cx = current - cy * width;
+                if ((other != null && other.isClosed(current))
+                        || (long) state.g[current] + otherLowestF - estimate(heuristic, cy, cx, startY, startX) >= bound) {
+                    rejected++;
+                    continue;
+                }
+                int straightG = state.g[current] + STRAIGHT_COST;
+                int diagonalG = state.g[current] + DIAGONAL_COST;
+
+                int moves = grid.neighbours(cy, cx, diagonal);
+                while (moves != 0) {
+                    int d = Integer.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    int ny = cy + Grid.DIRECTION_Y[d];
+                    int nx = cx + Grid.DIRECTION_X[d];
+                    int child = ny * width + nx;
+                    if (state.isClosed(child) || (other != null && other.isClosed(child))) {
+                        continue;
+                    }
+                    if (state.relax(child, d < 4 ? straightG : diagonalG, estimate(heuristic, ny, nx, targetY, targetX), current)) {
+                        touch(child);
+                    }
+                }
+            }
+        }
+
+        private static int estimate(Heuristic heuristic, int y, int x, int toY, int toX) {
+            return heuristic.estimate(Math.abs(y - toY), Math.abs(x - toX), STRAIGHT_COST, DIAGONAL_COST);
+        }
+
+        private void touch(int cell) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount << 1);
+            }
+            touched[touchedCount++] = cell;
+        }
+    }
+}
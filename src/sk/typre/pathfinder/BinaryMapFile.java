@@ -0,0 +1,104 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The binary map file format.
+ * <p>
+ * All values are little-endian. The file starts with a {@value #HEADER_SIZE} byte header:
+ * <pre>
+ *  0  int  magic "PFM1"
+ *  4  int  width
+ *  8  int  height
+ * 12  int  start y       (-1 without start point)
+ * 16  int  start x       (-1 without start point)
+ * 20  int  destiny y     (-1 without destiny point)
+ * 24  int  destiny x     (-1 without destiny point)
+ * 28  int  flags         (FLAG_START, FLAG_DESTINY)
+ * 32  ...  reserved, zero
+ * </pre>
+ * followed by {@code (width * height + 63) / 64} longs holding the cells exactly as {@link Grid} lays them out,
+ * so the mapped file is used as the grid without decoding.
+ */
+public class BinaryMapFile {
+    public static final int MAGIC = 0x314D4650;
+    public static final int HEADER_SIZE = 64;
+    public static final int FLAG_START = 1;
+    public static final int FLAG_DESTINY = 1 << 1;
+
+    private BinaryMapFile() {
+    }
+
+    /**
+     * Memory-maps the binary map file.
+     *
+     * @param file binary map file.
+     * @return the maze backed by the mapped file, or null if the file is not a valid binary map, also when the
+     * start or destiny point lies outside of the map or on a solid cell.
+     */
+    public static Maze map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                return null;
+            }
+            int width = buffer.getInt(4);
+            int height = buffer.getInt(8);
+            int flags = buffer.getInt(28);
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE
+                    || buffer.limit() < HEADER_SIZE + (((long) width * height + 63) >>> 6) * 8) {
+                return null;
+            }
+            Point start = (flags & FLAG_START) != 0 ? new Point(buffer.getInt(16), buffer.getInt(12)) : null;
+            Point destiny = (flags & FLAG_DESTINY) != 0 ? new Point(buffer.getInt(24), buffer.getInt(20)) : null;
+            buffer.position(HEADER_SIZE);
+            ByteBuffer cells = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            MappedGrid grid = new MappedGrid(width, height, cells.asLongBuffer());
+            if ((start != null && !grid.isWalkable(start.y, start.x)) || (destiny != null && !grid.isWalkable(destiny.y, destiny.x))) {
+                return null;
+            }
+            return new Maze(grid, start, destiny);
+        }
+    }
+
+    /**
+     * Writes the maze to the binary map file, only the first destiny point of the maze is stored.
+     *
+     * @param maze maze to write.
+     * @param file target file.
+     */
+    public static void write(Maze maze, File file) throws IOException {
+        Grid grid = maze.getGrid();
+        int wordCount = (grid.getCellCount() + 63) >>> 6;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + wordCount * 8).order(ByteOrder.LITTLE_ENDIAN);
+        Point start = maze.getStartPoint();
+        Point destiny = maze.getDestinyPoint();
+        buffer.putInt(MAGIC)
+                .putInt(grid.getWidth())
+                .putInt(grid.getHeight())
+                .putInt(start != null ? start.y : -1)
+                .putInt(start != null ? start.x : -1)
+                .putInt(destiny != null ? destiny.y : -1)
+                .putInt(destiny != null ? destiny.x : -1)
+                .putInt((start != null ? FLAG_START : 0) | (destiny != null ? FLAG_DESTINY : 0));
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < wordCount; i++) {
+            buffer.putLong(grid.word(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
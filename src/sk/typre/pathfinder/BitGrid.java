@@ -0,0 +1,69 @@
+package sk.typre.pathfinder;
+
+/**
+ * Grid kept on the heap in a {@code long[]}, one bit per cell.
+ */
+public class BitGrid extends Grid {
+    private final long[] words;
+
+    /**
+     * Creates a map of the given size where every cell is air.
+     */
+    public BitGrid(int width, int height) {
+        super(width, height);
+        this.words = new long[wordCount];
+    }
+
+    /**
+     * Creates a map over already packed words.
+     *
+     * @param words Row-major bitset, a set bit is solid.
+     */
+    BitGrid(int width, int height, long[] words) {
+        super(width, height);
+        if (words.length != wordCount) {
+            throw new IllegalArgumentException("Expected " + wordCount + " words, got " + words.length);
+        }
+        this.words = words;
+    }
+
+    /**
+     * Creates a map from the maze array. The words are packed directly, nothing is cached on a grid being built.
+     *
+     * @param intMaze Maze array contains 1 as solid and 0 as air.
+     */
+    public BitGrid(int[][] intMaze) {
+        this(intMaze[0].length, intMaze.length);
+        for (int y = 0; y < height; y++) {
+            int[] row = intMaze[y];
+            int rowStart = y * width;
+            for (int x = 0; x < width; x++) {
+                if (row[x] != 0) {
+                    int cell = rowStart + x;
+                    words[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+    }
+
+    @Override
+    public long word(int index) {
+        return words[index];
+    }
+
+    @Override
+    public boolean isSolid(int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public void setSolid(int y, int x, boolean solid) {
+        int cell = y * width + x;
+        long word = words[cell >>> 6];
+        long changed = solid ? word | 1L << cell : word & ~(1L << cell);
+        if (changed == word) {
+            return;
+        }
+        words[cell >>> 6] = changed;
+        cellChanged(y, x);
+    }
+}
@@ -0,0 +1,144 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first search limited to a rectangle of the grid, used inside one cluster of a {@link ClusterMap}.
+ * <p>
+ * {@link #load} copies the rectangle into a local air mask with a solid frame around it, so the searches run
+ * on plain array reads and many searches can share one load. Every straight and diagonal step costs 1, so the
+ * breadth first order gives the shortest distances. The buffers are kept between runs, an instance is not
+ * thread safe.
+ */
+final class ClusterBfs {
+    private boolean[] air = new boolean[0];
+    private int[] distance = new int[0];
+    private int[] parent = new int[0];
+    private int[] queue = new int[0];
+    private int gridWidth;
+    private int x0;
+    private int y0;
+    private int stride;
+    private int loadedCells;
+    private int sourceCell;
+
+    /**
+     * Copies the rectangle of the grid for the following runs.
+     *
+     * @param grid   Maze grid.
+     * @param x0     Left column of the rectangle.
+     * @param y0     Top row of the rectangle.
+     * @param width  Rectangle width.
+     * @param height Rectangle height.
+     */
+    void load(Grid grid, int x0, int y0, int width, int height) {
+        int stride = width + 2;
+        int cells = stride * (height + 2);
+        if (air.length < cells) {
+            air = new boolean[cells];
+            distance = new int[cells];
+            parent = new int[cells];
+            queue = new int[cells];
+        }
+        Arrays.fill(air, 0, cells, false);
+        for (int y = 0; y < height; y++) {
+            int rowStart = (y0 + y) * grid.getWidth() + x0;
+            int local = (y + 1) * stride + 1;
+            for (int x = 0; x < width; x += 64) {
+                long solid = grid.bits(rowStart + x);
+                int end = Math.min(width, x + 64);
+                for (int n = x; n < end; n++) {
+                    air[local + n] = (solid >>> (n - x) & 1) == 0;
+                }
+            }
+        }
+        this.gridWidth = grid.getWidth();
+        this.x0 = x0;
+        this.y0 = y0;
+        this.stride = stride;
+        this.loadedCells = cells;
+    }
+
+    /**
+     * Searches the distances from the source cell to every cell of the loaded rectangle.
+     *
+     * @param sourceCell Source cell id, inside the rectangle.
+     * @param diagonal   Include diagonal steps.
+     */
+    void run(int sourceCell, boolean diagonal) {
+        boolean[] air = this.air;
+        int[] distance = this.distance;
+        int stride = this.stride;
+        Arrays.fill(distance, 0, loadedCells, -1);
+        this.sourceCell = sourceCell;
+
+        int source = local(sourceCell);
+        distance[source] = 0;
+        queue[0] = source;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int current = queue[head++];
+            int next = distance[current] + 1;
+            boolean west = air[current - 1];
+            boolean east = air[current + 1];
+            boolean north = air[current - stride];
+            boolean south = air[current + stride];
+            tail = visit(current - 1, west, current, next, tail);
+            tail = visit(current + 1, east, current, next, tail);
+            tail = visit(current - stride, north, current, next, tail);
+            tail = visit(current + stride, south, current, next, tail);
+            if (diagonal) {
+                tail = visit(current - stride - 1, air[current - stride - 1] && (west || north), current, next, tail);
+                tail = visit(current - stride + 1, air[current - stride + 1] && (east || north), current, next, tail);
+                tail = visit(current + stride - 1, air[current + stride - 1] && (west || south), current, next, tail);
+                tail = visit(current + stride + 1, air[current + stride + 1] && (east || south), current, next, tail);
+            }
+        }
+    }
+
+    private int visit(int child, boolean open, int current, int childDistance, int tail) {
+        if (open && distance[child] == -1) {
+            distance[child] = childDistance;
+            parent[child] = current;
+            queue[tail++] = child;
+        }
+        return tail;
+    }
+
+    /**
+     * @param cell Cell id inside the rectangle of the last run.
+     * @return the distance from the source cell, -1 if the cell is not reachable inside the rectangle.
+     */
+    int distance(int cell) {
+        return distance[local(cell)];
+    }
+
+    /**
+     * @param cell Cell id inside the rectangle of the last run.
+     * @return the cells from the source cell to the cell, null if the cell is not reachable inside the rectangle.
+     */
+    int[] path(int cell) {
+        int local = local(cell);
+        if (distance[local] == -1) {
+            return null;
+        }
+        int[] path = new int[distance[local] + 1];
+        for (int i = path.length - 1; i > 0; i--) {
+            path[i] = global(local);
+            local = parent[local];
+        }
+        path[0] = sourceCell;
+        return path;
+    }
+
+    private int local(int cell) {
+        int y = cell / gridWidth;
+        return (y - y0 + 1) * stride + cell - y * gridWidth - x0 + 1;
+    }
+
+    private int global(int local) {
+        int ly = local / stride - 1;
+        return (y0 + ly) * gridWidth + x0 + local % stride - 1;
+    }
+}
@@ -0,0 +1,441 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Abstract graph of a {@link Grid} for the {@link HierarchicalSearch}.
+ * <p>
+ * The grid is split into square clusters. Where two neighbouring clusters share a run of air cells on both
+ * sides of their border, the run is an entrance with one transition in its middle, or one at each end when it
+ * is 6 cells or longer. Each transition adds a node on both sides of the border joined by a step of cost 1, and
+ * the nodes of one cluster are joined by edges with their shortest distance inside the cluster. A diagonal step
+ * over a border always has a straight crossing next to it because of the corner rule, so the straight transitions
+ * keep every connection of the grid.
+ * <p>
+ * The nodes keep their ids while their cells stay transitions. {@link #cellChanged} only marks the cluster of
+ * the changed cell dirty, {@link #update} later rebuilds the borders of every dirty cluster and the nodes and
+ * edges of the dirty clusters and their four neighbours once, however many of their cells changed. The grid
+ * updates the map before returning it and the search before using it. The map may be searched from many threads
+ * at once, but not while it is being updated.
+ */
+public final class ClusterMap {
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+    private static final int NONE = -1;
+    private static final int[] NO_EDGES = new int[0];
+
+    private final Grid grid;
+    private final int clusterSize;
+    private final boolean diagonal;
+    private final int clustersX;
+    private final int clustersY;
+    /**
+     * Transitions of the border between the clusters (cx, cy) and (cx + 1, cy) at index {@code cy * clustersX + cx},
+     * as pairs of the west and the east cell.
+     */
+    private final int[][] verticalBorders;
+    /**
+     * Transitions of the border between the clusters (cx, cy) and (cx, cy + 1) at index {@code cy * clustersX + cx},
+     * as pairs of the north and the south cell.
+     */
+    private final int[][] horizontalBorders;
+    private final int[][] clusterNodes;
+    private final ClusterBfs bfs = new ClusterBfs();
+    private int[] nodeCell = new int[64];
+    private int[] nodeCluster = new int[64];
+    /**
+     * Edges of every node as pairs of the target node and the cost.
+     */
+    private int[][] edges = new int[64][];
+    private int[] freeNodes = new int[16];
+    private int freeCount;
+    private int nodeCapacity;
+    /**
+     * Bit per cluster changed since the last {@link #update}.
+     */
+    private final long[] dirty;
+    private int dirtyCount;
+
+    private ClusterMap(Grid grid, int clusterSize, boolean diagonal) {
+        this.grid = grid;
+        this.clusterSize = clusterSize;
+        this.diagonal = diagonal;
+        this.clustersX = (grid.getWidth() + clusterSize - 1) / clusterSize;
+        this.clustersY = (grid.getHeight() + clusterSize - 1) / clusterSize;
+        int clusters = clustersX * clustersY;
+        this.verticalBorders = new int[clusters][];
+        this.horizontalBorders = new int[clusters][];
+        this.clusterNodes = new int[clusters][];
+        Arrays.fill(clusterNodes, NO_EDGES);
+        this.dirty = new long[(clusters + 63) >>> 6];
+    }
+
+    /**
+     * Builds the abstract graph of the grid.
+     *
+     * @param grid        Maze grid.
+     * @param clusterSize Width and height of the clusters in cells.
+     * @param diagonal    Include diagonal steps.
+     * @return the built map.
+     */
+    public static ClusterMap build(Grid grid, int clusterSize, boolean diagonal) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Cluster size must be at least 2.");
+        }
+        ClusterMap map = new ClusterMap(grid, clusterSize, diagonal);
+        int clusters = map.clustersX * map.clustersY;
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            map.findTransitions(cluster);
+        }
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            map.assignNodes(cluster);
+        }
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            map.linkNodes(cluster);
+        }
+        return map;
+    }
+
+    /**
+     * Marks the cluster of a changed cell dirty, the graph around it is rebuilt by the next {@link #update}.
+     *
+     * @param y Y coordinate of the changed cell.
+     * @param x X coordinate of the changed cell.
+     */
+    public synchronized void cellChanged(int y, int x) {
+        int cluster = y / clusterSize * clustersX + x / clusterSize;
+        long bit = 1L << cluster;
+        if ((dirty[cluster >>> 6] & bit) == 0) {
+            dirty[cluster >>> 6] |= bit;
+            dirtyCount++;
+        }
+    }
+
+    /**
+     * Rebuilds the graph around the dirty clusters: the borders of each dirty cluster and the nodes and edges of
+     * the dirty clusters and their four neighbours, every one of them once.
+     */
+    public synchronized void update() {
+        if (dirtyCount == 0) {
+            return;
+        }
+        long[] borders = new long[dirty.length];
+        long[] affected = new long[dirty.length];
+        for (int w = 0; w < dirty.length; w++) {
+            for (long bits = dirty[w]; bits != 0; bits &= bits - 1) {
+                int cluster = w << 6 | Long.numberOfTrailingZeros(bits);
+                int cx = cluster % clustersX;
+                int cy = cluster / clustersX;
+                mark(borders, cluster);
+                mark(affected, cluster);
+                if (cx > 0) {
+                    mark(borders, cluster - 1);
+                    mark(affected, cluster - 1);
+                }
+                if (cx + 1 < clustersX) {
+                    mark(affected, cluster + 1);
+                }
+                if (cy > 0) {
+                    mark(borders, cluster - clustersX);
+                    mark(affected, cluster - clustersX);
+                }
+                if (cy + 1 < clustersY) {
+                    mark(affected, cluster + clustersX);
+                }
+            }
+        }
+        for (int w = 0; w < borders.length; w++) {
+            for (long bits = borders[w]; bits != 0; bits &= bits - 1) {
+                findTransitions(w << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        for (int w = 0; w < affected.length; w++) {
+            for (long bits = affected[w]; bits != 0; bits &= bits - 1) {
+                assignNodes(w << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        for (int w = 0; w < affected.length; w++) {
+            for (long bits = affected[w]; bits != 0; bits &= bits - 1) {
+                linkNodes(w << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        Arrays.fill(dirty, 0);
+        dirtyCount = 0;
+    }
+
+    private static void mark(long[] set, int cluster) {
+        set[cluster >>> 6] |= 1L << cluster;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    public int getClusterCount() {
+        return clustersX * clustersY;
+    }
+
+    /**
+     * @return the number of transition nodes.
+     */
+    public int getNodeCount() {
+        return nodeCapacity - freeCount;
+    }
+
+    /**
+     * @return the upper bound of the node ids.
+     */
+    int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    int clusterOf(int cell) {
+        int width = grid.getWidth();
+        int y = cell / width;
+        return y / clusterSize * clustersX + (cell - y * width) / clusterSize;
+    }
+
+    int[] getClusterNodes(int cluster) {
+        return clusterNodes[cluster];
+    }
+
+    int getNodeCell(int node) {
+        return nodeCell[node];
+    }
+
+    int getNodeCluster(int node) {
+        return nodeCluster[node];
+    }
+
+    int[] getEdges(int node) {
+        return edges[node];
+    }
+
+    /**
+     * Runs the search of the bfs from the source cell inside the cluster.
+     */
+    void search(ClusterBfs bfs, int cluster, int sourceCell) {
+        load(bfs, cluster);
+        bfs.run(sourceCell, diagonal);
+    }
+
+    private void load(ClusterBfs bfs, int cluster) {
+        int x0 = cluster % clustersX * clusterSize;
+        int y0 = cluster / clustersX * clusterSize;
+        bfs.load(grid, x0, y0, Math.min(clusterSize, grid.getWidth() - x0), Math.min(clusterSize, grid.getHeight() - y0));
+    }
+
+    /**
+     * Finds the transitions of the east and south border of the cluster.
+     */
+    private void findTransitions(int cluster) {
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        if (cx + 1 < clustersX) {
+            int westX = (cx + 1) * clusterSize - 1;
+            int from = cy * clusterSize;
+            verticalBorders[cluster] = transitions(from, Math.min(height, from + clusterSize), westX, width, true);
+        }
+        if (cy + 1 < clustersY) {
+            int northY = (cy + 1) * clusterSize - 1;
+            int from = cx * clusterSize;
+            horizontalBorders[cluster] = transitions(from, Math.min(width, from + clusterSize), northY, width, false);
+        }
+    }
+
+    /**
+     * Finds the entrances along a border and places their transitions.
+     *
+     * @param from     First position along the border.
+     * @param to       End of the positions along the border, exclusive.
+     * @param line     Column of the west cells of a vertical border or row of the north cells of a horizontal one.
+     * @param width    Grid width.
+     * @param vertical The border runs vertically.
+     * @return pairs of the west and east, or the north and south cells of the transitions.
+     */
+    private int[] transitions(int from, int to, int line, int width, boolean vertical) {
+        int[] pairs = new int[8];
+        int count = 0;
+        int runStart = NONE;
+        for (int position = from; position <= to; position++) {
+            boolean open = position < to && isOpen(position, line, width, vertical);
+            if (open && runStart == NONE) {
+                runStart = position;
+            } else if (!open && runStart != NONE) {
+                int length = position - runStart;
+                if (count + 4 > pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairs.length << 1);
+                }
+                if (length < 6) {
+                    count = addPair(pairs, count, runStart + length / 2, line, width, vertical);
+                } else {
+                    count = addPair(pairs, count, runStart, line, width, vertical);
+                    count = addPair(pairs, count, position - 1, line, width, vertical);
+                }
+                runStart = NONE;
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    private boolean isOpen(int position, int line, int width, boolean vertical) {
+        return vertical
+                ? !grid.isSolid(position * width + line) && !grid.isSolid(position * width + line + 1)
+                : !grid.isSolid(line * width + position) && !grid.isSolid((line + 1) * width + position);
+    }
+
+    private static int addPair(int[] pairs, int count, int position, int line, int width, boolean vertical) {
+        if (vertical) {
+            pairs[count] = position * width + line;
+            pairs[count + 1] = position * width + line + 1;
+        } else {
+            pairs[count] = line * width + position;
+            pairs[count + 1] = (line + 1) * width + position;
+        }
+        return count + 2;
+    }
+
+    /**
+     * Recreates the node list of the cluster from the transitions on its four borders. Cells which stay
+     * transitions keep their node, the nodes of the other cells are released.
+     */
+    private void assignNodes(int cluster) {
+        int[] oldNodes = clusterNodes[cluster];
+        int[] nodes = new int[8];
+        int count = 0;
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int[][] sides = {
+                cx > 0 ? verticalBorders[cluster - 1] : null, cx + 1 < clustersX ? verticalBorders[cluster] : null,
+                cy > 0 ? horizontalBorders[cluster - clustersX] : null, cy + 1 < clustersY ? horizontalBorders[cluster] : null};
+        for (int side = 0; side < 4; side++) {
+            int[] pairs = sides[side];
+            if (pairs == null) {
+                continue;
+            }
+            //West and north borders hold the cell of this cluster second, east and south ones first
+            int offset = side == 0 || side == 2 ? 1 : 0;
+            for (int i = offset; i < pairs.length; i += 2) {
+                int cell = pairs[i];
+                if (find(nodes, count, cell) != NONE) {
+                    continue;
+                }
+                int node = find(oldNodes, oldNodes.length, cell);
+                if (node == NONE) {
+                    node = allocate(cell, cluster);
+                }
+                if (count == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, count << 1);
+                }
+                nodes[count++] = node;
+            }
+        }
+        nodes = Arrays.copyOf(nodes, count);
+        for (int node : oldNodes) {
+            if (find(nodes, count, nodeCell[node]) == NONE) {
+                release(node);
+            }
+        }
+        clusterNodes[cluster] = nodes;
+    }
+
+    /**
+     * Finds the node with the cell in the node list.
+     */
+    private int find(int[] nodes, int count, int cell) {
+        for (int i = 0; i < count; i++) {
+            if (nodeCell[nodes[i]] == cell) {
+                return nodes[i];
+            }
+        }
+        return NONE;
+    }
+
+    private int allocate(int cell, int cluster) {
+        int node;
+        if (freeCount > 0) {
+            node = freeNodes[--freeCount];
+        } else {
+            node = nodeCapacity++;
+            if (node == nodeCell.length) {
+                nodeCell = Arrays.copyOf(nodeCell, node << 1);
+                nodeCluster = Arrays.copyOf(nodeCluster, node << 1);
+                edges = Arrays.copyOf(edges, node << 1);
+            }
+        }
+        nodeCell[node] = cell;
+        nodeCluster[node] = cluster;
+        edges[node] = NO_EDGES;
+        return node;
+    }
+
+    private void release(int node) {
+        nodeCell[node] = NONE;
+        nodeCluster[node] = NONE;
+        edges[node] = NO_EDGES;
+        if (freeCount == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, freeCount << 1);
+        }
+        freeNodes[freeCount++] = node;
+    }
+
+    /**
+     * Recreates the edges of the nodes of the cluster, the distances to the other nodes of the cluster and the
+     * steps over the borders.
+     */
+    private void linkNodes(int cluster) {
+        int[] nodes = clusterNodes[cluster];
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        load(bfs, cluster);
+        for (int node : nodes) {
+            int cell = nodeCell[node];
+            int[] nodeEdges = new int[(nodes.length + 4) * 2];
+            int count = 0;
+            bfs.run(cell, diagonal);
+            for (int other : nodes) {
+                int distance = other != node ? bfs.distance(nodeCell[other]) : -1;
+                if (distance > 0) {
+                    nodeEdges[count++] = other;
+                    nodeEdges[count++] = distance;
+                }
+            }
+            if (cx > 0) {
+                count = linkBorder(nodeEdges, count, verticalBorders[cluster - 1], 1, cell, cluster - 1);
+            }
+            if (cx + 1 < clustersX) {
+                count = linkBorder(nodeEdges, count, verticalBorders[cluster], 0, cell, cluster + 1);
+            }
+            if (cy > 0) {
+                count = linkBorder(nodeEdges, count, horizontalBorders[cluster - clustersX], 1, cell, cluster - clustersX);
+            }
+            if (cy + 1 < clustersY) {
+                count = linkBorder(nodeEdges, count, horizontalBorders[cluster], 0, cell, cluster + clustersX);
+            }
+            edges[node] = Arrays.copyOf(nodeEdges, count);
+        }
+    }
+
+    /**
+     * Adds the step over the border when the cell is a transition of it.
+     */
+    private int linkBorder(int[] nodeEdges, int count, int[] pairs, int offset, int cell, int neighbour) {
+        for (int i = offset; i < pairs.length; i += 2) {
+            if (pairs[i] == cell) {
+                nodeEdges[count++] = find(clusterNodes[neighbour], clusterNodes[neighbour].length, pairs[i ^ 1]);
+                nodeEdges[count++] = 1;
+                return count;
+            }
+        }
+        return count;
+    }
+}
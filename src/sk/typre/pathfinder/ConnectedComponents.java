@@ -0,0 +1,137 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Connected regions of air cells of a {@link Grid}, two cells in different regions have no path between them.
+ * <p>
+ * A diagonal step is only allowed when one of the two straight cells next to it is air, and that cell joins
+ * both ends of the step with straight steps, so the regions are the same with and without diagonal steps.
+ * <p>
+ * The map is labeled in one pass over the rows. Every row is split into runs of air cells with the word scans
+ * of the grid, and a union-find joins each run with the overlapping runs of the row above. Only the runs are
+ * stored, so the labels take memory in proportion to the runs, not to the cells, and the label of a cell is a
+ * binary search among the runs of its row.
+ */
+public final class ConnectedComponents {
+    private final int width;
+    private final int[] rowStart;
+    private final int[] runX;
+    private final int[] runEnd;
+    private final int[] runLabel;
+    private final int componentCount;
+
+    private ConnectedComponents(int width, int[] rowStart, int[] runX, int[] runEnd, int[] runLabel, int componentCount) {
+        this.width = width;
+        this.rowStart = rowStart;
+        this.runX = runX;
+        this.runEnd = runEnd;
+        this.runLabel = runLabel;
+        this.componentCount = componentCount;
+    }
+
+    /**
+     * Labels the connected regions of the grid.
+     *
+     * @param grid Map grid.
+     * @return the labels, they are not updated when the grid changes.
+     */
+    public static ConnectedComponents label(Grid grid) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int[] rowStart = new int[height + 1];
+        int[] runX = new int[Math.max(16, height)];
+        int[] runEnd = new int[runX.length];
+        int[] parent = new int[runX.length];
+        int runs = 0;
+        for (int y = 0; y < height; y++) {
+            rowStart[y] = runs;
+            int above = y > 0 ? rowStart[y - 1] : runs;
+            for (int x = grid.nextWalkable(y, 0); x < width; x = grid.nextWalkable(y, x)) {
+                int end = grid.nextSolid(y, x);
+                if (runs == runX.length) {
+                    runX = Arrays.copyOf(runX, runs << 1);
+                    runEnd = Arrays.copyOf(runEnd, runs << 1);
+                    parent = Arrays.copyOf(parent, runs << 1);
+                }
+                runX[runs] = x;
+                runEnd[runs] = end;
+                parent[runs] = runs;
+                while (above < rowStart[y] && runEnd[above] <= x) {
+                    above++;
+                }
+                for (int other = above; other < rowStart[y] && runX[other] < end; other++) {
+                    union(parent, runs, other);
+                }
+                runs++;
+                x = end;
+            }
+        }
+        rowStart[height] = runs;
+
+        int[] runLabel = new int[runs];
+        int componentCount = 0;
+        for (int run = 0; run < runs; run++) {
+            int root = find(parent, run);
+            runLabel[run] = root == run ? ++componentCount : runLabel[root];
+        }
+        return new ConnectedComponents(width, rowStart, Arrays.copyOf(runX, runs), Arrays.copyOf(runEnd, runs), runLabel, componentCount);
+    }
+
+    /**
+     * @return the number of connected regions.
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * @param cell Cell id.
+     * @return the region of the cell from 1 to the component count, 0 if the cell is solid.
+     */
+    public int getLabel(int cell) {
+        int y = cell / width;
+        int x = cell - y * width;
+        int low = rowStart[y];
+        int high = rowStart[y + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (runX[middle] <= x) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high >= rowStart[y] && x < runEnd[high] ? runLabel[high] : 0;
+    }
+
+    /**
+     * Checks both cells are air and lie in different regions, so there is no path between them.
+     */
+    public boolean isSeparated(int cellA, int cellB) {
+        int labelA = getLabel(cellA);
+        int labelB = getLabel(cellB);
+        return labelA != 0 && labelB != 0 && labelA != labelB;
+    }
+
+    private static int find(int[] parent, int run) {
+        while (parent[run] != run) {
+            parent[run] = parent[parent[run]];
+            run = parent[run];
+        }
+        return run;
+    }
+
+    /**
+     * Joins the regions of both runs, the root is the lower run so roots come first in the row order.
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+}
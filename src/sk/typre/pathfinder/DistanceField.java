@@ -0,0 +1,226 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Distances from one source cell to the cells of the map, for queries from one origin to many destinies.
+ * <p>
+ * Every step costs 1, so the field is computed by a breadth first search and the distance of a cell is final
+ * as soon as the search reaches it. The distances are kept in one {@code int[]} over all cells, any number of
+ * targets are answered from it and a path to a target is followed back through the distances, no parents are
+ * stored. {@link #nearest} stops the search at the first target reached, the field is then only complete up
+ * to the distance of that target.
+ * <p>
+ * Diagonal steps follow the corner rule of {@link AStarAlgorithm#getPath}.
+ */
+public class DistanceField {
+    /**
+     * Distance of the cells not reached from the source.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private final Grid grid;
+    private final int sourceCell;
+    private final boolean diagonal;
+    private final int[] distance;
+    private final SearchStatistics statistics = new SearchStatistics();
+    private int nearestTarget = UNREACHABLE;
+
+    private DistanceField(Grid grid, int sourceCell, boolean diagonal) {
+        if (sourceCell < 0 || sourceCell >= grid.getCellCount()) {
+            throw new IllegalArgumentException("Source is outside of the map.");
+        }
+        this.grid = grid;
+        this.sourceCell = sourceCell;
+        this.diagonal = diagonal;
+        this.distance = new int[grid.getCellCount()];
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    /**
+     * Computes the distances from the source to every reachable cell.
+     *
+     * @param grid       Maze grid.
+     * @param sourceCell Source cell id.
+     * @param diagonal   Include diagonal steps.
+     * @return the complete field.
+     */
+    public static DistanceField compute(Grid grid, int sourceCell, boolean diagonal) {
+        DistanceField field = new DistanceField(grid, sourceCell, diagonal);
+        field.search(null);
+        return field;
+    }
+
+    /**
+     * Searches from the source until the nearest of the targets is reached.
+     *
+     * @param grid        Maze grid.
+     * @param sourceCell  Source cell id.
+     * @param targetCells Target cell ids.
+     * @param diagonal    Include diagonal steps.
+     * @return the field, complete up to the distance of the nearest target.
+     */
+    public static DistanceField nearest(Grid grid, int sourceCell, int[] targetCells, boolean diagonal) {
+        DistanceField field = new DistanceField(grid, sourceCell, diagonal);
+        long[] targets = new long[(grid.getCellCount() + 63) >>> 6];
+        for (int cell : targetCells) {
+            if (cell < 0 || cell >= grid.getCellCount()) {
+                throw new IllegalArgumentException("Target is outside of the map.");
+            }
+            targets[cell >>> 6] |= 1L << cell;
+        }
+        field.search(targets);
+        return field;
+    }
+
+    private void search(long[] targets) {
+        int width = grid.getWidth();
+        int[] queue = new int[64];
+        int head = 0;
+        int tail = 0;
+        int generated = 1;
+        int peak = 1;
+        distance[sourceCell] = 0;
+        if (isTarget(targets, sourceCell)) {
+            nearestTarget = sourceCell;
+            statistics.set(0, generated, 0, peak);
+            return;
+        }
+        queue[tail++] = sourceCell;
+        searching:
+        while (head < tail) {
+            int cell = queue[head++];
+            int cy = cell / width;
+            int cx = cell - cy * width;
+            int next = distance[cell] + 1;
+            int moves = grid.neighbours(cy, cx, diagonal);
+            while (moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int neighbour = (cy + Grid.DIRECTION_Y[d]) * width + cx + Grid.DIRECTION_X[d];
+                if (distance[neighbour] != UNREACHABLE) {
+                    continue;
+                }
+                distance[neighbour] = next;
+                generated++;
+                if (isTarget(targets, neighbour)) {
+                    nearestTarget = neighbour;
+                    break searching;
+                }
+                if (tail == queue.length) {
+                    if (head > queue.length >>> 1) {
+                        System.arraycopy(queue, head, queue, 0, tail - head);
+                        tail -= head;
+                        head = 0;
+                    } else {
+                        queue = Arrays.copyOf(queue, queue.length << 1);
+                    }
+                }
+                queue[tail++] = neighbour;
+                peak = Math.max(peak, tail - head);
+            }
+        }
+        statistics.set(head, generated, 0, peak);
+    }
+
+    private static boolean isTarget(long[] targets, int cell) {
+        return targets != null && (targets[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public int getSourceCell() {
+        return sourceCell;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    /**
+     * @return the distance of the cell from the source, or {@link #UNREACHABLE}.
+     */
+    public int getDistance(int cell) {
+        return distance[cell];
+    }
+
+    /**
+     * @return the distances of the target cells in the order of the targets.
+     */
+    public int[] getDistances(int[] targetCells) {
+        int[] distances = new int[targetCells.length];
+        for (int i = 0; i < targetCells.length; i++) {
+            distances[i] = distance[targetCells[i]];
+        }
+        return distances;
+    }
+
+    /**
+     * Orders the targets by their distance from the source, the unreachable targets are left out.
+     *
+     * @return the reachable target cell ids from the nearest to the farthest.
+     */
+    public int[] rank(int[] targetCells) {
+        long[] keyed = new long[targetCells.length];
+        int count = 0;
+        for (int cell : targetCells) {
+            if (distance[cell] != UNREACHABLE) {
+                keyed[count++] = (long) distance[cell] << 32 | cell;
+            }
+        }
+        Arrays.sort(keyed, 0, count);
+        int[] ranked = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranked[i] = (int) keyed[i];
+        }
+        return ranked;
+    }
+
+    /**
+     * @return the target reached by {@link #nearest}, or {@link #UNREACHABLE} if no target is reachable.
+     */
+    public int getNearestTarget() {
+        return nearestTarget;
+    }
+
+    /**
+     * Follows the distances back from the cell to the source.
+     *
+     * @param cell Reached cell id.
+     * @return Path composed of cell ids {@code y * width + x} from the source to the cell, or null if the cell
+     * is not reached.
+     */
+    public int[] getPath(int cell) {
+        if (distance[cell] == UNREACHABLE) {
+            return null;
+        }
+        int width = grid.getWidth();
+        int[] path = new int[distance[cell] + 1];
+        for (int i = path.length - 1; i > 0; i--) {
+            path[i] = cell;
+            int cy = cell / width;
+            int cx = cell - cy * width;
+            int moves = grid.neighbours(cy, cx, diagonal);
+            while (moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int neighbour = (cy + Grid.DIRECTION_Y[d]) * width + cx + Grid.DIRECTION_X[d];
+                if (distance[neighbour] == i - 1) {
+                    cell = neighbour;
+                    break;
+                }
+            }
+        }
+        path[0] = sourceCell;
+        return path;
+    }
+
+    /**
+     * @return the counters of the search, a cell is expanded when its neighbours are visited.
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+}
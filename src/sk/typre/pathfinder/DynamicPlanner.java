@@ -0,0 +1,338 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Incremental path planner for maps which change a few cells at a time (D* Lite).
+ * <p>
+ * The planner searches backward from the destiny and keeps for every cell its distance g and the one-step
+ * lookahead rhs computed from the neighbours. After {@link #setCell} only the changed cell and its neighbours
+ * are updated, and the next {@link #findPath()} repairs the distances from the inconsistent cells outwards,
+ * so a replan after a small change expands a fraction of the cells of a full search. The start may move with
+ * {@link #setStart} without losing the distances, the keys are corrected by the heuristic distance the start
+ * moved.
+ * <p>
+ * Every straight and diagonal step costs 1 and diagonal steps follow the corner rule of {@link AStarAlgorithm#getPath}.
+ * The heuristic must be admissible and consistent. An instance is not thread safe.
+ */
+public class DynamicPlanner {
+    private static final int INFINITY = Integer.MAX_VALUE >> 2;
+    private static final int NONE = -1;
+
+    private final Grid grid;
+    private final boolean diagonal;
+    private final Heuristic heuristic;
+    private final int width;
+    private final int goalCell;
+    private final int[] g;
+    private final int[] rhs;
+    private final long[] key;
+    private final int[] heapPosition;
+    private int[] heap = new int[64];
+    private int heapSize;
+    private int startCell;
+    private int lastStartCell;
+    private int km;
+    private int expanded;
+    private int generated;
+    private int reopened;
+    private int peakOpenSize;
+
+    /**
+     * @param grid      Maze grid, it may only be changed through {@link #setCell}.
+     * @param startCell Start cell id.
+     * @param goalCell  Destiny cell id.
+     * @param diagonal  Include diagonal steps.
+     */
+    public DynamicPlanner(Grid grid, int startCell, int goalCell, boolean diagonal) {
+        this(grid, startCell, goalCell, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * @param grid      Maze grid, it may only be changed through {@link #setCell}.
+     * @param startCell Start cell id.
+     * @param goalCell  Destiny cell id.
+     * @param diagonal  Include diagonal steps.
+     * @param heuristic Estimate of the remaining cost.
+     */
+    public DynamicPlanner(Grid grid, int startCell, int goalCell, boolean diagonal, Heuristic heuristic) {
+        int cells = grid.getCellCount();
+        if (startCell < 0 || startCell >= cells || goalCell < 0 || goalCell >= cells) {
+            throw new IllegalArgumentException("Start or destiny is outside of the map.");
+        }
+        this.grid = grid;
+        this.diagonal = diagonal;
+        this.heuristic = heuristic;
+        this.width = grid.getWidth();
+        this.goalCell = goalCell;
+        this.startCell = startCell;
+        this.lastStartCell = startCell;
+        this.g = new int[cells];
+        this.rhs = new int[cells];
+        this.key = new long[cells];
+        this.heapPosition = new int[cells];
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        Arrays.fill(heapPosition, NONE);
+        rhs[goalCell] = 0;
+        insert(goalCell, calculateKey(goalCell));
+    }
+
+    /**
+     * Changes a cell of the grid and marks its surroundings for the next replan.
+     *
+     * @param y     Y coordinate.
+     * @param x     X coordinate.
+     * @param solid New state of the cell.
+     * @throws UnsupportedOperationException if the grid is read-only.
+     */
+    public void setCell(int y, int x, boolean solid) {
+        if (!(grid instanceof BitGrid)) {
+            throw new UnsupportedOperationException("The grid is read-only.");
+        }
+        if (grid.isSolid(y, x) == solid) {
+            return;
+        }
+        ((BitGrid) grid).setSolid(y, x, solid);
+        int height = grid.getHeight();
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                updateVertex(ny * width + nx);
+            }
+        }
+    }
+
+    /**
+     * Moves the start, the distances to the destiny are kept.
+     *
+     * @param cell New start cell id.
+     */
+    public void setStart(int cell) {
+        if (cell < 0 || cell >= grid.getCellCount()) {
+            throw new IllegalArgumentException("Start is outside of the map.");
+        }
+        km += estimate(lastStartCell, cell);
+        lastStartCell = cell;
+        startCell = cell;
+    }
+
+    /**
+     * Repairs the distances changed since the last call and follows them from the start to the destiny.
+     *
+     * @return Path composed of cell ids {@code y * width + x} from start to destiny, or null if there is no path.
+     */
+    public int[] findPath() {
+        computeShortestPath();
+        if (g[startCell] >= INFINITY) {
+            return null;
+        }
+        int[] path = new int[g[startCell] + 1];
+        int length = 0;
+        int cell = startCell;
+        path[length++] = cell;
+        while (cell != goalCell) {
+            int cy = cell / width;
+            int cx = cell - cy * width;
+            int next = NONE;
+            int moves = grid.neighbours(cy, cx, diagonal);
+            while (moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int neighbour = (cy + Grid.DIRECTION_Y[d]) * width + cx + Grid.DIRECTION_X[d];
+                if (next == NONE || g[neighbour] < g[next]) {
+                    next = neighbour;
+                }
+            }
+            if (next == NONE || g[next] >= INFINITY || length == grid.getCellCount()) {
+                return null;
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length << 1);
+            }
+            cell = next;
+            path[length++] = cell;
+        }
+        return length == path.length ? path : Arrays.copyOf(path, length);
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    public int getStartCell() {
+        return startCell;
+    }
+
+    public int getGoalCell() {
+        return goalCell;
+    }
+
+    /**
+     * @return the number of cells expanded by the last replan.
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * @return the counters of the last replan.
+     */
+    public SearchStatistics getStatistics() {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.set(expanded, generated, reopened, peakOpenSize);
+        return statistics;
+    }
+
+    private void computeShortestPath() {
+        expanded = 0;
+        generated = 0;
+        reopened = 0;
+        peakOpenSize = heapSize;
+        while (heapSize > 0 && (key[heap[0]] < calculateKey(startCell) || rhs[startCell] != g[startCell])) {
+            int u = heap[0];
+            long oldKey = key[u];
+            long newKey = calculateKey(u);
+            if (oldKey < newKey) {
+                update(u, newKey);
+                continue;
+            }
+            expanded++;
+            int uy = u / width;
+            int ux = u - uy * width;
+            if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                remove(u);
+            } else {
+                g[u] = INFINITY;
+                updateVertex(u);
+            }
+            int moves = grid.neighbours(uy, ux, diagonal);
+            while (moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                updateVertex((uy + Grid.DIRECTION_Y[d]) * width + ux + Grid.DIRECTION_X[d]);
+            }
+        }
+    }
+
+    /**
+     * Recomputes rhs of the cell from its neighbours and puts the cell in the queue when it is inconsistent.
+     */
+    private void updateVertex(int u) {
+        if (u != goalCell) {
+            int best = INFINITY;
+            int uy = u / width;
+            int ux = u - uy * width;
+            if (!grid.isSolid(u)) {
+                int moves = grid.neighbours(uy, ux, diagonal);
+                while (moves != 0) {
+                    int d = Integer.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    best = Math.min(best, g[(uy + Grid.DIRECTION_Y[d]) * width + ux + Grid.DIRECTION_X[d]] + 1);
+                }
+            }
+            rhs[u] = Math.min(best, INFINITY);
+        }
+        if (g[u] != rhs[u]) {
+            if (heapPosition[u] == NONE) {
+                insert(u, calculateKey(u));
+            } else {
+                update(u, calculateKey(u));
+            }
+        } else if (heapPosition[u] != NONE) {
+            remove(u);
+        }
+    }
+
+    /**
+     * Orders the queue by min(g, rhs) plus the estimate to the start, ties by min(g, rhs), packed in one long.
+     */
+    private long calculateKey(int cell) {
+        int distance = Math.min(g[cell], rhs[cell]);
+        long primary = Math.min((long) distance + estimate(startCell, cell) + km, INFINITY);
+        return primary << 32 | distance;
+    }
+
+    private int estimate(int from, int to) {
+        int fy = from / width;
+        int ty = to / width;
+        return heuristic.estimate(Math.abs(fy - ty), Math.abs(from - fy * width - to + ty * width), 1, 1);
+    }
+
+    private void insert(int cell, long cellKey) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize << 1);
+        }
+        key[cell] = cellKey;
+        heap[heapSize] = cell;
+        siftUp(heapSize++);
+        generated++;
+        peakOpenSize = Math.max(peakOpenSize, heapSize);
+    }
+
+    private void update(int cell, long cellKey) {
+        long oldKey = key[cell];
+        key[cell] = cellKey;
+        if (cellKey < oldKey) {
+            siftUp(heapPosition[cell]);
+            reopened++;
+        } else {
+            siftDown(heapPosition[cell]);
+        }
+    }
+
+    private void remove(int cell) {
+        int index = heapPosition[cell];
+        heapPosition[cell] = NONE;
+        int last = heap[--heapSize];
+        if (index < heapSize) {
+            heap[index] = last;
+            heapPosition[last] = index;
+            siftUp(index);
+            siftDown(heapPosition[last]);
+        }
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        long cellKey = key[cell];
+        while (index > 0) {
+            int up = (index - 1) >>> 1;
+            int upCell = heap[up];
+            if (cellKey >= key[upCell]) {
+                break;
+            }
+            heap[index] = upCell;
+            heapPosition[upCell] = index;
+            index = up;
+        }
+        heap[index] = cell;
+        heapPosition[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        long cellKey = key[cell];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && key[heap[right]] < key[heap[child]]) {
+                child = right;
+            }
+            int childCell = heap[child];
+            if (key[childCell] >= cellKey) {
+                break;
+            }
+            heap[index] = childCell;
+            heapPosition[childCell] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapPosition[cell] = index;
+    }
+}
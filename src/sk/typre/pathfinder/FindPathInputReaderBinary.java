@@ -0,0 +1,10 @@
+package sk.typre.pathfinder;
+
+import java.io.File;
+
+public class FindPathInputReaderBinary extends AbstractFindPathInputReader {
+    public FindPathInputReaderBinary(File file) {
+        super(file, InputType.BINARY_FILE);
+    }
+
+}
@@ -0,0 +1,174 @@
+package sk.typre.pathfinder;
+
+import java.util.stream.IntStream;
+
+/**
+ * The step towards one destiny from every cell of the map, for many units routed to the same destiny.
+ * <p>
+ * One breadth first search runs backwards from the destiny, the moves are symmetric so it gives the distance
+ * of every cell to the destiny. Every reached cell then gets the move to a neighbour one step closer, a straight
+ * move before a diagonal one. The moves are packed 3 bits per cell, 21 cells per long, and a reached bit per
+ * cell, so the field takes about half a byte per cell and a unit at any cell follows it to the destiny in
+ * O(path length) without searching.
+ * <p>
+ * The moves are picked in parallel tiles on the common fork join pool. A tile covers 1024 longs of moves,
+ * 21504 cells, a multiple of 64 cells, so no two tiles write the same long of moves or of reached bits.
+ * Diagonal steps follow the corner rule of {@link AStarAlgorithm#getPath}. The field is not updated when the
+ * grid changes, {@link Grid#getFlowField} keeps it until a cell changes.
+ */
+public class FlowField {
+    /**
+     * Direction of the cells without a move, the destiny and the cells which do not reach it.
+     */
+    public static final int NONE = -1;
+
+    private static final int BITS = 3;
+    private static final int CELLS_PER_WORD = 64 / BITS;
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * Longs of moves per tile, a multiple of 64 so the tiles also split the reached bits at whole longs.
+     */
+    private static final int TILE_WORDS = 1 << 10;
+    /**
+     * Maps with fewer cells are packed on the calling thread.
+     */
+    private static final int PARALLEL_CELLS = 1 << 16;
+
+    private final Grid grid;
+    private final int destinyCell;
+    private final boolean diagonal;
+    private final long[] moves;
+    private final long[] reached;
+
+    private FlowField(Grid grid, int destinyCell, boolean diagonal) {
+        this.grid = grid;
+        this.destinyCell = destinyCell;
+        this.diagonal = diagonal;
+        this.moves = new long[(grid.getCellCount() + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+        this.reached = new long[(grid.getCellCount() + 63) >>> 6];
+    }
+
+    /**
+     * Computes the field of the destiny.
+     *
+     * @param grid        Maze grid.
+     * @param destinyCell Destiny cell id.
+     * @param diagonal    Include diagonal steps.
+     * @return the field of every cell which reaches the destiny.
+     */
+    public static FlowField compute(Grid grid, int destinyCell, boolean diagonal) {
+        FlowField field = new FlowField(grid, destinyCell, diagonal);
+        DistanceField distances = DistanceField.compute(grid, destinyCell, diagonal);
+        int tileCount = (field.moves.length + TILE_WORDS - 1) / TILE_WORDS;
+        IntStream tiles = IntStream.range(0, tileCount);
+        if (grid.getCellCount() >= PARALLEL_CELLS) {
+            tiles = tiles.parallel();
+        }
+        tiles.forEach(tile -> field.pack(distances, tile));
+        return field;
+    }
+
+    /**
+     * Picks the moves of the cells of one tile.
+     */
+    private void pack(DistanceField distances, int tile) {
+        int width = grid.getWidth();
+        int cellCount = grid.getCellCount();
+        int fromWord = tile * TILE_WORDS;
+        int toWord = Math.min(fromWord + TILE_WORDS, moves.length);
+        for (int w = fromWord; w < toWord; w++) {
+            long word = 0;
+            int first = w * CELLS_PER_WORD;
+            int last = Math.min(first + CELLS_PER_WORD, cellCount);
+            for (int cell = first; cell < last; cell++) {
+                int distance = distances.getDistance(cell);
+                if (distance <= 0) {
+                    continue;
+                }
+                reached[cell >>> 6] |= 1L << cell;
+                int cy = cell / width;
+                int cx = cell - cy * width;
+                int allowed = grid.neighbours(cy, cx, diagonal);
+                while (allowed != 0) {
+                    int d = Integer.numberOfTrailingZeros(allowed);
+                    allowed &= allowed - 1;
+                    int neighbour = (cy + Grid.DIRECTION_Y[d]) * width + cx + Grid.DIRECTION_X[d];
+                    if (distances.getDistance(neighbour) == distance - 1) {
+                        word |= (long) d << (cell - first) * BITS;
+                        break;
+                    }
+                }
+            }
+            moves[w] = word;
+        }
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public int getDestinyCell() {
+        return destinyCell;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    /**
+     * @return returns true if the destiny is reachable from the cell.
+     */
+    public boolean reaches(int cell) {
+        return cell == destinyCell || (reached[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @param cell Cell id.
+     * @return the move index into {@code Grid.DIRECTION_Y} and {@code Grid.DIRECTION_X} towards the destiny,
+     * or {@link #NONE} at the destiny and at the cells which do not reach it.
+     */
+    public int getDirection(int cell) {
+        if (cell == destinyCell || (reached[cell >>> 6] & (1L << cell)) == 0) {
+            return NONE;
+        }
+        return (int) (moves[cell / CELLS_PER_WORD] >>> (cell % CELLS_PER_WORD) * BITS) & MASK;
+    }
+
+    /**
+     * @return the next cell towards the destiny, or {@link #NONE} at the destiny and at the cells which do not reach it.
+     */
+    public int next(int cell) {
+        int d = getDirection(cell);
+        return d == NONE ? NONE : cell + Grid.DIRECTION_Y[d] * grid.getWidth() + Grid.DIRECTION_X[d];
+    }
+
+    /**
+     * Follows the moves from the start cell to the destiny.
+     *
+     * @param startCell Start cell id.
+     * @return Path composed of cell ids {@code y * width + x} from start to the destiny, or null if the start does
+     * not reach the destiny.
+     */
+    public int[] getPath(int startCell) {
+        if (!reaches(startCell)) {
+            return null;
+        }
+        int length = 1;
+        for (int cell = startCell; cell != destinyCell; cell = next(cell)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int cell = startCell;
+        for (int i = 0; i < length; i++, cell = next(cell)) {
+            path[i] = cell;
+        }
+        return path;
+    }
+
+    /**
+     * @return the size of the packed moves and reached bits in bytes.
+     */
+    public long getMemoryBytes() {
+        return (moves.length + reached.length) * 8L;
+    }
+}
@@ -0,0 +1,285 @@
+package sk.typre.pathfinder;
+
+/**
+ * A rectangular map of solid and walkable cells stored as a bitset.
+ * <p>
+ * Cells are laid out row-major, cell {@code y * width + x} is bit {@code cell & 63} of the word
+ * {@code cell >>> 6}. A set bit is solid, a clear bit is air. Subclasses only supply the words,
+ * the neighbour and row queries work a word at a time on top of {@link #word(int)}. The data derived
+ * from the cells, such as the region labels or the flow fields, is kept in a {@link GridCache} owned by the grid.
+ */
+public abstract class Grid {
+    /**
+     * Move offsets in the order west, east, north, south, north-west, north-east, south-west, south-east.
+     * The first four moves are the straight ones.
+     */
+    static final int[] DIRECTION_Y = {0, 0, -1, 1, -1, -1, 1, 1};
+    static final int[] DIRECTION_X = {-1, 1, 0, 0, -1, 1, -1, 1};
+
+    protected final int width;
+    protected final int height;
+    protected final int wordCount;
+    private final GridCache cache = new GridCache(this);
+
+    protected Grid(int width, int height) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported map size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.wordCount = (width * height + 63) >>> 6;
+    }
+
+    /**
+     * Returns 64 cells of the map.
+     *
+     * @param index Word index, from 0 to {@code (width * height + 63) / 64 - 1}.
+     * @return word with a set bit for every solid cell.
+     */
+    public abstract long word(int index);
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellCount() {
+        return width * height;
+    }
+
+    /**
+     * Labels the connected regions of the map once and keeps them with the map, so every search on it can
+     * tell unreachable destinies without searching.
+     *
+     * @return the cached labels.
+     */
+    public ConnectedComponents labelComponents() {
+        return cache.labelComponents();
+    }
+
+    /**
+     * @return the labels cached by {@link #labelComponents()}, or null if the map is not labeled.
+     */
+    public ConnectedComponents getComponents() {
+        return cache.getComponents();
+    }
+
+    /**
+     * Builds the {@link ClusterMap} of the map for the movement once and keeps it with the map.
+     *
+     * @param diagonal Include diagonal steps.
+     * @return the cached cluster map.
+     */
+    public ClusterMap getClusterMap(boolean diagonal) {
+        return cache.getClusterMap(diagonal);
+    }
+
+    /**
+     * Keeps the landmarks with the map, A* uses their bound for its searches with the same movement until a cell changes.
+     *
+     * @param landmarks Landmarks built for this map, null to drop them.
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        if (landmarks != null && !landmarks.matches(this, landmarks.isDiagonal())) {
+            throw new IllegalArgumentException("Landmarks belong to another map.");
+        }
+        cache.setLandmarks(landmarks);
+    }
+
+    /**
+     * @param diagonal Include diagonal steps.
+     * @return the landmarks set by {@link #setLandmarks} for the movement, or null.
+     */
+    public Landmarks getLandmarks(boolean diagonal) {
+        return cache.getLandmarks(diagonal);
+    }
+
+    /**
+     * Computes the {@link FlowField} of the destiny once and keeps it with the map until a cell changes,
+     * the fields of the {@value GridCache#FLOW_FIELDS} most recently used destinies are kept.
+     *
+     * @param destinyCell Destiny cell id.
+     * @param diagonal    Include diagonal steps.
+     * @return the cached flow field.
+     */
+    public FlowField getFlowField(int destinyCell, boolean diagonal) {
+        return cache.getFlowField(destinyCell, diagonal);
+    }
+
+    /**
+     * Hashes the size and the cells of the map once and keeps the hash with the map until a cell changes.
+     * Maps with the same content have the same hash, whichever grid holds them.
+     *
+     * @return 64-bit hash of the map content, never 0.
+     */
+    public long getContentHash() {
+        return cache.getContentHash();
+    }
+
+    /**
+     * Tells the data derived from the cells that the cell changed, called whenever a cell changes.
+     */
+    protected void cellChanged(int y, int x) {
+        cache.cellChanged(y, x);
+    }
+
+    /**
+     * Converts the y,x position to the cell id.
+     */
+    public int cell(int y, int x) {
+        return y * width + x;
+    }
+
+    public boolean isSolid(int cell) {
+        return (word(cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    public boolean isSolid(int y, int x) {
+        return isSolid(y * width + x);
+    }
+
+    /**
+     * Checks the cell is inside the map and not solid.
+     */
+    public boolean isWalkable(int y, int x) {
+        return y >= 0 && y < height && x >= 0 && x < width && !isSolid(y * width + x);
+    }
+
+    /**
+     * Returns 64 consecutive cells starting at any cell, bit 0 is the cell {@code index}.
+     * Cells past the end of the map read as air.
+     *
+     * @param index First cell id.
+     * @return bits with a set bit for every solid cell.
+     */
+    public long bits(int index) {
+        int w = index >>> 6;
+        int shift = index & 63;
+        long low = word(w) >>> shift;
+        if (shift == 0 || w + 1 >= wordCount) {
+            return low;
+        }
+        return low | word(w + 1) << (64 - shift);
+    }
+
+    /**
+     * Returns 64 consecutive cells ending at any cell, bit 63 is the cell {@code index}.
+     * Cells before the start of the map read as air.
+     *
+     * @param index Last cell id.
+     * @return bits with a set bit for every solid cell.
+     */
+    public long bitsEndingAt(int index) {
+        int from = index - 63;
+        return from >= 0 ? bits(from) : bits(0) << -from;
+    }
+
+    /**
+     * Finds the first solid cell in the row y at or after x.
+     *
+     * @return x of the solid cell, or width if the rest of the row is air.
+     */
+    public int nextSolid(int y, int x) {
+        int rowStart = y * width;
+        int rowEnd = rowStart + width;
+        for (int index = rowStart + x; index < rowEnd; index += 64) {
+            long solid = bits(index);
+            if (solid != 0) {
+                return Math.min(index + Long.numberOfTrailingZeros(solid), rowEnd) - rowStart;
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Finds the first air cell in the row y at or after x.
+     *
+     * @return x of the air cell, or width if the rest of the row is solid.
+     */
+    public int nextWalkable(int y, int x) {
+        int rowStart = y * width;
+        int rowEnd = rowStart + width;
+        for (int index = rowStart + x; index < rowEnd; index += 64) {
+            long air = ~bits(index);
+            if (air != 0) {
+                return Math.min(index + Long.numberOfTrailingZeros(air), rowEnd) - rowStart;
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Finds the last solid cell in the row y at or before x.
+     *
+     * @return x of the solid cell, or -1 if the row is air up to x.
+     */
+    public int previousSolid(int y, int x) {
+        int rowStart = y * width;
+        for (int index = rowStart + x; index >= rowStart; index -= 64) {
+            long solid = bitsEndingAt(index);
+            if (solid != 0) {
+                return Math.max(index - Long.numberOfLeadingZeros(solid), rowStart - 1) - rowStart;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the last air cell in the row y at or before x.
+     *
+     * @return x of the air cell, or -1 if the row is solid up to x.
+     */
+    public int previousWalkable(int y, int x) {
+        int rowStart = y * width;
+        for (int index = rowStart + x; index >= rowStart; index -= 64) {
+            long air = ~bitsEndingAt(index);
+            if (air != 0) {
+                return Math.max(index - Long.numberOfLeadingZeros(air), rowStart - 1) - rowStart;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Calculates the moves allowed from the cell y,x. A diagonal move is allowed when its target
+     * is air and at least one of the two straight cells next to it is air.
+     *
+     * @param y        Y coordinate.
+     * @param x        X coordinate.
+     * @param diagonal Include diagonal moves.
+     * @return bit mask, bit d is set when the move ({@code DIRECTION_Y[d]}, {@code DIRECTION_X[d]}) is allowed.
+     */
+    public int neighbours(int y, int x, boolean diagonal) {
+        int up = window(y - 1, x);
+        int row = window(y, x);
+        int down = window(y + 1, x);
+        int west = row & 1;
+        int east = row >>> 2 & 1;
+        int north = up >>> 1 & 1;
+        int south = down >>> 1 & 1;
+        int moves = west | east << 1 | north << 2 | south << 3;
+        if (diagonal) {
+            moves |= (up & (west | north)) << 4
+                    | (up >>> 2 & (east | north)) << 5
+                    | (down & (west | south)) << 6
+                    | (down >>> 2 & (east | south)) << 7;
+        }
+        return moves;
+    }
+
+    /**
+     * Reads the cells x-1, x, x+1 of the row y, bit 0 is x-1 and a set bit is air.
+     * Cells outside the map read as solid.
+     */
+    private int window(int y, int x) {
+        if (y < 0 || y >= height) {
+            return 0;
+        }
+        int index = y * width + x;
+        int air = x == 0 ? (int) (~bits(index) & 3) << 1 : (int) (~bits(index - 1) & 7);
+        return x + 1 < width ? air : air & 3;
+    }
+}
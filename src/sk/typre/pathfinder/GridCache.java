@@ -0,0 +1,154 @@
+package sk.typre.pathfinder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data derived from the cells of one {@link Grid} and kept with it: the content hash, the region labels, the
+ * cluster maps, the landmarks and the flow fields.
+ * <p>
+ * The grid owns one cache and calls {@link #cellChanged} whenever one of its cells changes, the cache drops
+ * or marks stale everything derived from the old cells. The features read and fill the cache through the
+ * getters of the grid.
+ */
+final class GridCache {
+    /**
+     * Number of destinies whose {@link FlowField} is kept with the map.
+     */
+    static final int FLOW_FIELDS = 8;
+
+    private final Grid grid;
+    private volatile long contentHash;
+    private volatile ConnectedComponents components;
+    private volatile ClusterMap straightClusterMap;
+    private volatile ClusterMap diagonalClusterMap;
+    private volatile Landmarks landmarks;
+    private final Map<Long, FlowField> flowFields = new LinkedHashMap<Long, FlowField>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FlowField> eldest) {
+            return size() > FLOW_FIELDS;
+        }
+    };
+    /**
+     * Counts the cell changes, a flow field computed before a cell changed is not kept.
+     */
+    private int version;
+
+    GridCache(Grid grid) {
+        this.grid = grid;
+    }
+
+    long getContentHash() {
+        long hash = contentHash;
+        if (hash == 0) {
+            hash = (long) grid.getWidth() << 32 | grid.getHeight();
+            int wordCount = (grid.getCellCount() + 63) >>> 6;
+            for (int w = 0; w < wordCount; w++) {
+                hash = mix(hash, grid.word(w));
+            }
+            hash = finish(hash);
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Adds 64 bits to a running hash.
+     */
+    static long mix(long hash, long value) {
+        return (Long.rotateLeft(hash, 29) ^ value) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Spreads the running hash over all bits.
+     *
+     * @return the hash, never 0.
+     */
+    static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    ConnectedComponents labelComponents() {
+        ConnectedComponents labels = components;
+        if (labels == null) {
+            labels = ConnectedComponents.label(grid);
+            components = labels;
+        }
+        return labels;
+    }
+
+    ConnectedComponents getComponents() {
+        return components;
+    }
+
+    ClusterMap getClusterMap(boolean diagonal) {
+        ClusterMap map = diagonal ? diagonalClusterMap : straightClusterMap;
+        if (map == null) {
+            synchronized (this) {
+                map = diagonal ? diagonalClusterMap : straightClusterMap;
+                if (map == null) {
+                    map = ClusterMap.build(grid, ClusterMap.DEFAULT_CLUSTER_SIZE, diagonal);
+                    if (diagonal) {
+                        diagonalClusterMap = map;
+                    } else {
+                        straightClusterMap = map;
+                    }
+                }
+            }
+        }
+        map.update();
+        return map;
+    }
+
+    void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    Landmarks getLandmarks(boolean diagonal) {
+        Landmarks set = landmarks;
+        return set != null && set.isDiagonal() == diagonal ? set : null;
+    }
+
+    FlowField getFlowField(int destinyCell, boolean diagonal) {
+        Long key = (long) destinyCell << 1 | (diagonal ? 1 : 0);
+        FlowField field;
+        int computedVersion;
+        synchronized (flowFields) {
+            field = flowFields.get(key);
+            computedVersion = version;
+        }
+        if (field == null) {
+            field = FlowField.compute(grid, destinyCell, diagonal);
+            synchronized (flowFields) {
+                if (computedVersion == version) {
+                    flowFields.put(key, field);
+                }
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Drops the hash, labels, landmarks and flow fields and marks the cluster maps stale around the cell.
+     */
+    void cellChanged(int y, int x) {
+        contentHash = 0;
+        components = null;
+        landmarks = null;
+        synchronized (flowFields) {
+            flowFields.clear();
+            version++;
+        }
+        ClusterMap map = straightClusterMap;
+        if (map != null) {
+            map.cellChanged(y, x);
+        }
+        map = diagonalClusterMap;
+        if (map != null) {
+            map.cellChanged(y, x);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package sk.typre.pathfinder;
+
+/**
+ * Estimate of the remaining path cost from a cell to the destiny, used to order the A* open set.
+ * <p>
+ * A heuristic that never overestimates the real cost (admissible) keeps the found paths optimal,
+ * a larger estimate expands fewer cells but may return a longer path.
+ */
+public interface Heuristic {
+    /**
+     * @param dy           Absolute row distance to the destiny.
+     * @param dx           Absolute column distance to the destiny.
+     * @param straightCost Cost of a straight step.
+     * @param diagonalCost Cost of a diagonal step.
+     * @return estimated cost to the destiny.
+     */
+    int estimate(int dy, int dx, int straightCost, int diagonalCost);
+}
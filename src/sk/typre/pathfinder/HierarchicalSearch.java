@@ -0,0 +1,195 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical A* (HPA*) for very large maps.
+ * <p>
+ * The search runs on the {@link ClusterMap} of the grid, built once per map and movement and cached by
+ * {@link Grid#getClusterMap(boolean)}. The start and the destiny are joined to the transition nodes of their
+ * clusters by a breadth first search inside the cluster, A* finds the path over the abstract graph, and only
+ * the edges of that path are refined into cells, each one by a search inside a single cluster. The cost of an
+ * abstract search grows with the number of clusters, not with the number of cells.
+ * <p>
+ * The paths go through the transition nodes, so they can be a few steps longer than the optimal path. When the
+ * start and the destiny are in one cluster and connected inside it, the path inside the cluster is returned.
+ * <p>
+ * An instance is not thread safe, use one instance per thread, the cluster maps may be shared.
+ */
+public class HierarchicalSearch {
+    private final SearchState state = new SearchState();
+    private final ClusterBfs bfs = new ClusterBfs();
+    private int[] startLinks = new int[16];
+    private int[] endLinks = new int[16];
+    private int startLinkCount;
+    private int endLinkCount;
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal) {
+        return findPath(grid, startCell, endCell, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @param heuristic Estimate of the remaining cost.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal, Heuristic heuristic) {
+        return findPath(grid.getClusterMap(diagonal), startCell, endCell, heuristic);
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell on the cluster map.
+     *
+     * @param map       Cluster map of the grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param heuristic Estimate of the remaining cost.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(ClusterMap map, int startCell, int endCell, Heuristic heuristic) {
+        map.update();
+        int capacity = map.getNodeCapacity();
+        int startNode = capacity;
+        int endNode = capacity + 1;
+        state.prepare(capacity + 2);
+        int startCluster = map.clusterOf(startCell);
+        int endCluster = map.clusterOf(endCell);
+
+        map.search(bfs, startCluster, startCell);
+        if (startCluster == endCluster && bfs.distance(endCell) != -1) {
+            return bfs.path(endCell);
+        }
+        int[] startNodes = map.getClusterNodes(startCluster);
+        if (startLinks.length < startNodes.length * 2) {
+            startLinks = new int[startNodes.length * 2];
+        }
+        startLinkCount = link(map, startNodes, startLinks);
+        map.search(bfs, endCluster, endCell);
+        int[] endNodes = map.getClusterNodes(endCluster);
+        if (endLinks.length < endNodes.length * 2) {
+            endLinks = new int[endNodes.length * 2];
+        }
+        endLinkCount = link(map, endNodes, endLinks);
+        if (startLinkCount == 0 || endLinkCount == 0) {
+            return null;
+        }
+
+        Grid grid = map.getGrid();
+        int width = grid.getWidth();
+        int endY = endCell / width;
+        int endX = endCell % width;
+        state.open(startNode, 0, estimate(heuristic, startCell, endY, endX, width), startNode);
+        while (!state.isEmpty()) {
+            int current = state.poll();
+            if (current == endNode) {
+                return refine(map, state.buildPath(startNode, endNode), startCell, endCell);
+            }
+            int g = state.g[current];
+            if (current == startNode) {
+                for (int i = 0; i < startLinkCount; i += 2) {
+                    int node = startLinks[i];
+                    state.relax(node, g + startLinks[i + 1], estimate(heuristic, map.getNodeCell(node), endY, endX, width), current);
+                }
+                continue;
+            }
+            int[] edges = map.getEdges(current);
+            for (int i = 0; i < edges.length; i += 2) {
+                int node = edges[i];
+                if (!state.isClosed(node)) {
+                    state.relax(node, g + edges[i + 1], estimate(heuristic, map.getNodeCell(node), endY, endX, width), current);
+                }
+            }
+            if (map.getNodeCluster(current) == endCluster) {
+                for (int i = 0; i < endLinkCount; i += 2) {
+                    if (endLinks[i] == current) {
+                        state.relax(endNode, g + endLinks[i + 1], 0, current);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of abstract nodes expanded by the last search.
+     */
+    public int getExpandedCount() {
+        return state.getExpanded();
+    }
+
+    /**
+     * @return the counters of the abstract search.
+     */
+    public SearchStatistics getStatistics() {
+        return state.getStatistics();
+    }
+
+    /**
+     * Collects the nodes reached by the last breadth first search as pairs of the node and the distance.
+     *
+     * @return the number of written values.
+     */
+    private int link(ClusterMap map, int[] nodes, int[] links) {
+        int count = 0;
+        for (int node : nodes) {
+            int distance = bfs.distance(map.getNodeCell(node));
+            if (distance != -1) {
+                links[count++] = node;
+                links[count++] = distance;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces every abstract edge of the path with the cells it stands for.
+     */
+    private int[] refine(ClusterMap map, int[] nodes, int startCell, int endCell) {
+        int capacity = map.getNodeCapacity();
+        int[] path = new int[64];
+        path[0] = startCell;
+        int length = 1;
+        int fromCell = startCell;
+        for (int i = 1; i < nodes.length; i++) {
+            int from = nodes[i - 1];
+            int to = nodes[i];
+            int toCell = to == capacity + 1 ? endCell : map.getNodeCell(to);
+            if (toCell == fromCell) {
+                continue;
+            }
+            int[] segment;
+            if (from < capacity && to < capacity && map.getNodeCluster(from) != map.getNodeCluster(to)) {
+                segment = new int[]{fromCell, toCell};
+            } else {
+                map.search(bfs, from < capacity ? map.getNodeCluster(from) : map.clusterOf(startCell), fromCell);
+                segment = bfs.path(toCell);
+            }
+            if (length + segment.length > path.length) {
+                path = Arrays.copyOf(path, Math.max(path.length << 1, length + segment.length));
+            }
+            System.arraycopy(segment, 1, path, length, segment.length - 1);
+            length += segment.length - 1;
+            fromCell = toCell;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    private static int estimate(Heuristic heuristic, int cell, int endY, int endX, int width) {
+        int y = cell / width;
+        return heuristic.estimate(Math.abs(y - endY), Math.abs(cell - y * width - endX), 1, 1);
+    }
+}
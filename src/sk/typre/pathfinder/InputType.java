@@ -1,5 +1,5 @@
 package sk.typre.pathfinder;
 
 public enum InputType {
-    FILE, CONSOLE
+    FILE, BINARY_FILE, CONSOLE
 }
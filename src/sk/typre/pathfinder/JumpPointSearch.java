@@ -0,0 +1,254 @@
+package sk.typre.pathfinder;
+
+/**
+ * Jump Point Search, an A* for uniform-cost grids that skips over the cells between jump points.
+ * <p>
+ * Every straight and diagonal step costs 1 and diagonal steps follow the corner rule of
+ * {@link AStarAlgorithm#getPath}, a diagonal step is allowed unless both straight cells next to it are solid.
+ * From a jump point the search only scans the directions that can lie on an optimal path and stops at the
+ * next cell with a forced neighbour, so on open maps it expands a small fraction of the cells plain A* does.
+ * <p>
+ * With diagonal steps the canonical paths go diagonal first, a diagonal scan runs a straight scan along both
+ * of its components on every step. Without diagonal steps the canonical paths go vertical first, a vertical
+ * scan runs a horizontal scan to both sides on every step and a horizontal scan stops where a vertical way
+ * opens up behind a wall.
+ * <p>
+ * The per-cell state is kept in a reusable {@link SearchState}. An instance is not thread safe, use one
+ * instance per thread.
+ */
+public class JumpPointSearch {
+    private static final int NONE = -1;
+    private static final int STRAIGHT_COST = 1;
+    private static final int DIAGONAL_COST = 1;
+
+    private final SearchState state = new SearchState();
+    private Grid grid;
+    private Heuristic heuristic;
+    private int width;
+    private int height;
+    private int endCell;
+    private int endY;
+    private int endX;
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal) {
+        return findPath(grid, startCell, endCell, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @param heuristic Estimate of the remaining cost.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, int startCell, int endCell, boolean diagonal, Heuristic heuristic) {
+        SearchState state = this.state;
+        this.grid = grid;
+        this.heuristic = heuristic;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.endCell = endCell;
+        this.endY = endCell / width;
+        this.endX = endCell % width;
+        state.prepare(grid.getCellCount());
+
+        state.open(startCell, 0, heuristic(startCell / width, startCell % width), startCell);
+        try {
+            while (!state.isEmpty()) {
+                int current = state.poll();
+                if (current == endCell) {
+                    return expandPath(state.buildPath(startCell, endCell));
+                }
+                int cy = current / width;
+                int cx = current - cy * width;
+                int moves = current == startCell ? grid.neighbours(cy, cx, diagonal) : prunedMoves(current, cy, cx, diagonal);
+                while (moves != 0) {
+                    int d = Integer.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    int jumpPoint = jump(cy, cx, Grid.DIRECTION_Y[d], Grid.DIRECTION_X[d], diagonal);
+                    if (jumpPoint == NONE) {
+                        continue;
+                    }
+                    int jy = jumpPoint / width;
+                    int jx = jumpPoint - jy * width;
+                    int steps = Math.max(Math.abs(jy - cy), Math.abs(jx - cx));
+                    int jumpG = state.g[current] + steps * (jy == cy || jx == cx ? STRAIGHT_COST : DIAGONAL_COST);
+                    state.relax(jumpPoint, jumpG, heuristic(jy, jx), current);
+                }
+            }
+            return null;
+        } finally {
+            this.grid = null;
+            this.heuristic = null;
+        }
+    }
+
+    /**
+     * @return the number of jump points expanded by the last search.
+     */
+    public int getExpandedCount() {
+        return state.getExpanded();
+    }
+
+    /**
+     * @return the counters of the last search.
+     */
+    public SearchStatistics getStatistics() {
+        return state.getStatistics();
+    }
+
+    private int heuristic(int y, int x) {
+        return heuristic.estimate(Math.abs(y - endY), Math.abs(x - endX), STRAIGHT_COST, DIAGONAL_COST);
+    }
+
+    /**
+     * Calculates the directions worth scanning from a jump point reached from its parent, the natural
+     * directions of the arriving move plus the forced ones.
+     *
+     * @return bit mask of directions in the {@link Grid#neighbours} order.
+     */
+    private int prunedMoves(int cell, int cy, int cx, boolean diagonal) {
+        int from = state.parent[cell];
+        int py = from / width;
+        int dy = Integer.signum(cy - py);
+        int dx = Integer.signum(cx - (from - py * width));
+        int moves = 0;
+        if (diagonal) {
+            if (dy != 0 && dx != 0) {
+                moves |= bit(0, dx) | bit(dy, 0) | bit(dy, dx);
+                if (!walkable(cy, cx - dx)) {
+                    moves |= bit(dy, -dx);
+                }
+                if (!walkable(cy - dy, cx)) {
+                    moves |= bit(-dy, dx);
+                }
+            } else if (dx != 0) {
+                moves |= bit(0, dx);
+                if (!walkable(cy - 1, cx)) {
+                    moves |= bit(-1, dx);
+                }
+                if (!walkable(cy + 1, cx)) {
+                    moves |= bit(1, dx);
+                }
+            } else {
+                moves |= bit(dy, 0);
+                if (!walkable(cy, cx - 1)) {
+                    moves |= bit(dy, -1);
+                }
+                if (!walkable(cy, cx + 1)) {
+                    moves |= bit(dy, 1);
+                }
+            }
+        } else if (dy != 0) {
+            moves |= bit(dy, 0) | bit(0, -1) | bit(0, 1);
+        } else {
+            moves |= bit(0, dx);
+            if (!walkable(cy - 1, cx - dx)) {
+                moves |= bit(-1, 0);
+            }
+            if (!walkable(cy + 1, cx - dx)) {
+                moves |= bit(1, 0);
+            }
+        }
+        return moves & grid.neighbours(cy, cx, diagonal);
+    }
+
+    /**
+     * Scans from the cell y,x in the direction dy,dx.
+     *
+     * @return the next jump point, or NONE if the scan runs into a wall or off the map.
+     */
+    private int jump(int y, int x, int dy, int dx, boolean diagonal) {
+        while (true) {
+            int ny = y + dy;
+            int nx = x + dx;
+            //Diagonal step through a wall corner is not allowed
+            if (!walkable(ny, nx) || (dy != 0 && dx != 0 && !walkable(y, nx) && !walkable(ny, x))) {
+                return NONE;
+            }
+            int cell = ny * width + nx;
+            if (cell == endCell) {
+                return cell;
+            }
+            if (diagonal) {
+                if (dy != 0 && dx != 0) {
+                    if ((!walkable(ny, x) && walkable(ny + dy, x))
+                            || (!walkable(y, nx) && walkable(y, nx + dx))
+                            || jump(ny, nx, 0, dx, true) != NONE
+                            || jump(ny, nx, dy, 0, true) != NONE) {
+                        return cell;
+                    }
+                } else if (dx != 0) {
+                    if ((!walkable(ny - 1, nx) && walkable(ny - 1, nx + dx))
+                            || (!walkable(ny + 1, nx) && walkable(ny + 1, nx + dx))) {
+                        return cell;
+                    }
+                } else if ((!walkable(ny, nx - 1) && walkable(ny + dy, nx - 1))
+                        || (!walkable(ny, nx + 1) && walkable(ny + dy, nx + 1))) {
+                    return cell;
+                }
+            } else if (dy != 0) {
+                if (jump(ny, nx, 0, -1, false) != NONE || jump(ny, nx, 0, 1, false) != NONE) {
+                    return cell;
+                }
+            } else if ((walkable(ny - 1, nx) && !walkable(ny - 1, x))
+                    || (walkable(ny + 1, nx) && !walkable(ny + 1, x))) {
+                return cell;
+            }
+            y = ny;
+            x = nx;
+        }
+    }
+
+    /**
+     * Fills in the cells skipped between consecutive jump points.
+     */
+    private int[] expandPath(int[] jumpPoints) {
+        int length = 1;
+        for (int i = 1; i < jumpPoints.length; i++) {
+            length += distance(jumpPoints[i - 1], jumpPoints[i]);
+        }
+        int[] path = new int[length];
+        path[0] = jumpPoints[0];
+        int index = 1;
+        for (int i = 1; i < jumpPoints.length; i++) {
+            int from = jumpPoints[i - 1];
+            int to = jumpPoints[i];
+            int step = Integer.signum(to / width - from / width) * width + Integer.signum(to % width - from % width);
+            for (int cell = from + step; cell != to; cell += step) {
+                path[index++] = cell;
+            }
+            path[index++] = to;
+        }
+        return path;
+    }
+
+    private int distance(int from, int to) {
+        return Math.max(Math.abs(to / width - from / width), Math.abs(to % width - from % width));
+    }
+
+    private boolean walkable(int y, int x) {
+        return grid.isWalkable(y, x);
+    }
+
+    private static int bit(int dy, int dx) {
+        for (int d = 0; d < 8; d++) {
+            if (Grid.DIRECTION_Y[d] == dy && Grid.DIRECTION_X[d] == dx) {
+                return 1 << d;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
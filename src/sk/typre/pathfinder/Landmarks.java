@@ -0,0 +1,308 @@
+package sk.typre.pathfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Distances from a few landmark cells to every cell of a static map, the ALT (A*, landmarks, triangle
+ * inequality) lower bound of the distance between any two cells.
+ * <p>
+ * Every step costs 1 and the moves are symmetric, so for a landmark L the triangle inequality gives
+ * {@code d(n, t) >= |d(L, t) - d(L, n)|}. The estimate is the largest bound over the landmarks, it never
+ * overestimates and changes by at most 1 per step, so it is admissible and consistent. Near walls and in
+ * mazes it is far tighter than {@link StandardHeuristic#MANHATTAN} or {@link StandardHeuristic#OCTILE}.
+ * <p>
+ * The landmarks are chosen farthest first in the largest region of the map: each one is the cell farthest
+ * from the landmarks before it. Cells of the other regions get no bound from the landmarks.
+ * The distances are stored as 16-bit values, {@code 2 * count * width * height} bytes. Distances over
+ * {@value #MAX_DISTANCE} are clamped, which keeps the bound admissible. More landmarks give a tighter bound
+ * for more memory, more preprocessing and a slower estimate.
+ * <p>
+ * The table belongs to one grid content and one movement, {@link #load} keeps it in a {@value #EXTENSION}
+ * file next to the map file and builds it again when the map changed. The binary file is little-endian:
+ * <pre>
+ *  0  int  magic "PFL1"
+ *  4  int  width
+ *  8  int  height
+ * 12  int  flags         (FLAG_DIAGONAL)
+ * 16  int  landmark count
+ * 20  long content hash of the grid
+ * 28  int  requested landmark count
+ * </pre>
+ * followed by the landmark cell ids as ints and the distances as chars, landmark after landmark.
+ */
+public class Landmarks {
+    public static final int MAGIC = 0x314C4650;
+    public static final int HEADER_SIZE = 32;
+    public static final int FLAG_DIAGONAL = 1;
+    public static final String EXTENSION = ".alt";
+    public static final int DEFAULT_COUNT = 8;
+    /**
+     * Largest stored distance, larger distances are clamped to it.
+     */
+    public static final int MAX_DISTANCE = 0xFFFE;
+
+    private static final char UNREACHABLE = 0xFFFF;
+
+    private final int width;
+    private final int height;
+    private final boolean diagonal;
+    private final long contentHash;
+    private final int requested;
+    private final int[] cells;
+    private final char[] distances;
+
+    private Landmarks(int width, int height, boolean diagonal, long contentHash, int requested, int[] cells, char[] distances) {
+        this.width = width;
+        this.height = height;
+        this.diagonal = diagonal;
+        this.contentHash = contentHash;
+        this.requested = requested;
+        this.cells = cells;
+        this.distances = distances;
+    }
+
+    /**
+     * Chooses the landmarks and computes their distances.
+     *
+     * @param grid     Maze grid.
+     * @param count    Number of landmarks, the map gets fewer if its largest region has fewer cells.
+     * @param diagonal Include diagonal steps.
+     * @return the landmarks of the grid.
+     */
+    public static Landmarks build(Grid grid, int count, boolean diagonal) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Landmark count must be positive.");
+        }
+        int cellCount = grid.getCellCount();
+        if ((long) count * cellCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many landmarks for the map size.");
+        }
+        int seed = largestRegionCell(grid);
+        if (seed < 0) {
+            return new Landmarks(grid.getWidth(), grid.getHeight(), diagonal, grid.getContentHash(), count, new int[0], new char[0]);
+        }
+        int[] landmarkCells = new int[count];
+        char[] landmarkDistances = new char[count * cellCount];
+        int[] nearest = new int[cellCount];
+        Arrays.fill(nearest, DistanceField.UNREACHABLE);
+        int found = 0;
+        int next = farthest(DistanceField.compute(grid, seed, diagonal), cellCount);
+        while (found < count) {
+            DistanceField field = DistanceField.compute(grid, next, diagonal);
+            int offset = found * cellCount;
+            for (int cell = 0; cell < cellCount; cell++) {
+                int distance = field.getDistance(cell);
+                if (distance == DistanceField.UNREACHABLE) {
+                    landmarkDistances[offset + cell] = UNREACHABLE;
+                } else {
+                    landmarkDistances[offset + cell] = (char) Math.min(distance, MAX_DISTANCE);
+                    if (nearest[cell] == DistanceField.UNREACHABLE || distance < nearest[cell]) {
+                        nearest[cell] = distance;
+                    }
+                }
+            }
+            landmarkCells[found++] = next;
+            next = farthest(nearest);
+            if (next < 0) {
+                break;
+            }
+        }
+        if (found < count) {
+            landmarkCells = Arrays.copyOf(landmarkCells, found);
+            landmarkDistances = Arrays.copyOf(landmarkDistances, found * cellCount);
+        }
+        return new Landmarks(grid.getWidth(), grid.getHeight(), diagonal, grid.getContentHash(), count, landmarkCells, landmarkDistances);
+    }
+
+    /**
+     * Reads the landmarks of the map from the {@value #EXTENSION} file next to it. When the file is missing or
+     * belongs to another map content, movement or requested landmark count, the landmarks are built and the file
+     * is written.
+     *
+     * @param mapFile  Map file the grid was loaded from.
+     * @param grid     Maze grid.
+     * @param count    Number of landmarks.
+     * @param diagonal Include diagonal steps.
+     * @return the landmarks of the grid.
+     */
+    public static Landmarks load(File mapFile, Grid grid, int count, boolean diagonal) throws IOException {
+        File file = getFile(mapFile);
+        if (file.isFile()) {
+            Landmarks landmarks = read(file);
+            if (landmarks != null && landmarks.matches(grid, diagonal) && landmarks.requested == count) {
+                return landmarks;
+            }
+        }
+        Landmarks landmarks = build(grid, count, diagonal);
+        landmarks.write(file);
+        return landmarks;
+    }
+
+    /**
+     * @return the landmark file of the map file.
+     */
+    public static File getFile(File mapFile) {
+        return new File(mapFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Reads the landmark file.
+     *
+     * @return the landmarks, or null if the file is not a valid landmark file.
+     */
+    public static Landmarks read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                return null;
+            }
+            int width = buffer.getInt(4);
+            int height = buffer.getInt(8);
+            int flags = buffer.getInt(12);
+            int count = buffer.getInt(16);
+            long contentHash = buffer.getLong(20);
+            int requested = buffer.getInt(28);
+            if (width <= 0 || height <= 0 || count < 0 || (long) count * width * height > Integer.MAX_VALUE
+                    || buffer.limit() != HEADER_SIZE + count * 4L + (long) count * width * height * 2) {
+                return null;
+            }
+            int[] cells = new int[count];
+            char[] distances = new char[count * width * height];
+            buffer.position(HEADER_SIZE);
+            buffer.asIntBuffer().get(cells);
+            buffer.position(HEADER_SIZE + count * 4);
+            buffer.asCharBuffer().get(distances);
+            return new Landmarks(width, height, (flags & FLAG_DIAGONAL) != 0, contentHash, requested, cells, distances);
+        }
+    }
+
+    /**
+     * Writes the landmark file.
+     */
+    public void write(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + cells.length * 4 + distances.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(width)
+                .putInt(height)
+                .putInt(diagonal ? FLAG_DIAGONAL : 0)
+                .putInt(cells.length)
+                .putLong(contentHash)
+                .putInt(requested);
+        buffer.position(HEADER_SIZE);
+        buffer.asIntBuffer().put(cells);
+        buffer.position(HEADER_SIZE + cells.length * 4);
+        buffer.asCharBuffer().put(distances);
+        buffer.position(0);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Lower bound of the number of steps between the cells.
+     *
+     * @param cell       Cell id.
+     * @param targetCell Target cell id.
+     * @return the largest triangle inequality bound of the landmarks, 0 if no landmark reaches both cells.
+     */
+    public int estimate(int cell, int targetCell) {
+        int cellCount = width * height;
+        int best = 0;
+        for (int offset = 0; offset < distances.length; offset += cellCount) {
+            char from = distances[offset + cell];
+            char to = distances[offset + targetCell];
+            if (from != UNREACHABLE && to != UNREACHABLE) {
+                best = Math.max(best, Math.abs(to - from));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return returns true if the landmarks were built for the current content of the grid and the movement.
+     */
+    public boolean matches(Grid grid, boolean diagonal) {
+        return this.diagonal == diagonal && width == grid.getWidth() && height == grid.getHeight()
+                && contentHash == grid.getContentHash();
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    public int getCount() {
+        return cells.length;
+    }
+
+    /**
+     * @return the landmark cell ids.
+     */
+    public int[] getCells() {
+        return cells.clone();
+    }
+
+    /**
+     * @return the size of the distance table in bytes.
+     */
+    public long getMemoryBytes() {
+        return distances.length * 2L;
+    }
+
+    /**
+     * @return the first cell of the region with the most cells, or -1 if the map has no air.
+     */
+    private static int largestRegionCell(Grid grid) {
+        ConnectedComponents components = grid.getComponents() != null ? grid.getComponents() : ConnectedComponents.label(grid);
+        int[] size = new int[components.getComponentCount() + 1];
+        int[] first = new int[size.length];
+        for (int cell = 0; cell < grid.getCellCount(); cell++) {
+            int label = components.getLabel(cell);
+            if (label != 0 && size[label]++ == 0) {
+                first[label] = cell;
+            }
+        }
+        int largest = 0;
+        for (int label = 1; label < size.length; label++) {
+            if (size[label] > size[largest]) {
+                largest = label;
+            }
+        }
+        return largest == 0 ? -1 : first[largest];
+    }
+
+    private static int farthest(DistanceField field, int cellCount) {
+        int best = field.getSourceCell();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (field.getDistance(cell) > field.getDistance(best)) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the reached cell farthest from its nearest landmark, or -1 if every reached cell is a landmark.
+     */
+    private static int farthest(int[] nearest) {
+        int best = -1;
+        int bestDistance = 0;
+        for (int cell = 0; cell < nearest.length; cell++) {
+            if (nearest[cell] > bestDistance) {
+                best = cell;
+                bestDistance = nearest[cell];
+            }
+        }
+        return best;
+    }
+}
@@ -4,7 +4,50 @@ import java.io.*;
 
 
 public class Main {
+    /**
+     * Setting this system property prints the search metrics after every solved maze
+     * and publishes them over JMX.
+     */
+    public static final String METRICS_PROPERTY = "pathfinder.metrics";
+    /**
+     * Setting this system property to a number of landmarks keeps {@link Landmarks} next to the loaded map file
+     * and solves the map with them, an empty value uses {@value Landmarks#DEFAULT_COUNT} landmarks.
+     */
+    public static final String LANDMARKS_PROPERTY = "pathfinder.landmarks";
+
+    private SolverMetrics metrics;
+    /**
+     * Planner of the last D* Lite solve, a reloaded map with the same size and destiny is replanned from it.
+     */
+    private DynamicPlanner planner;
+    /**
+     * Maze and path of the last solve, a changed map file is compared with them.
+     */
+    private Maze maze;
+    private PathResult lastResult;
+    /**
+     * Loaded map file and the number of its landmarks, 0 without landmarks.
+     */
+    private File mapFile;
+    private int landmarkCount;
+    /**
+     * Solver of the maze, reloading an unchanged map returns the cached path.
+     */
+    private final PathSolver solver = new PathSolver(new PathCache());
+
+    /**
+     * Starts the interactive console, with {@code --server [port]} the {@link SolverServer} and with
+     * {@code --batch [options] <directory|glob>} the {@link BatchRunner}.
+     */
     public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            SolverServer.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 //        Console console = System.console();
 //        if (console == null && !GraphicsEnvironment.isHeadless()) {
 //            String filename = Main.class.getProtectionDomain().getCodeSource().getLocation().toString().substring(6);
@@ -17,27 +60,50 @@ public class Main {
 
 
     public void startApp() throws IOException, InterruptedException {
-        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        if (System.getProperty(METRICS_PROPERTY) != null) {
+            metrics = SolverMetrics.install();
+        }
+        String landmarks = System.getProperty(LANDMARKS_PROPERTY);
+        if (landmarks != null) {
+            landmarkCount = landmarks.isEmpty() ? Landmarks.DEFAULT_COUNT : Integer.parseInt(landmarks);
+        }
+        InputStream in = new BufferedInputStream(System.in);
         AbstractFindPathInputReader reader;
         String answer = null;
         File file = null;
         boolean diagonal;
+        SearchAlgorithm algorithm;
         do {
             if (answer != null) {
                 System.out.println("Wrong answer.");
             }
             System.out.print("Use diagonal steps to solve the maze ? y/n: ");
-        } while (!(answer = in.readLine()).matches("[yn]"));
+        } while (!(answer = readLine(in)).matches("[yn]"));
 
         diagonal = answer.equals("y");
         answer=null;
 
+        SearchAlgorithm[] algorithms = SearchAlgorithm.values();
+        do {
+            if (answer != null) {
+                System.out.println("Wrong answer.");
+            }
+            System.out.print("Select the search algorithm");
+            for (int i = 0; i < algorithms.length; i++) {
+                System.out.print((i == 0 ? " " : ", ") + (i + 1) + " - " + algorithms[i].getTitle());
+            }
+            System.out.print(": ");
+        } while (!(answer = readLine(in)).matches("[1-" + algorithms.length + "]"));
+
+        algorithm = algorithms[Integer.parseInt(answer) - 1];
+        answer=null;
+
         do {
             if (answer != null) {
                 System.out.println("Wrong answer.");
             }
             System.out.print("Do you want to load maze from the file ? y/n: ");
-        } while (!(answer = in.readLine()).matches("[yn]"));
+        } while (!(answer = readLine(in)).matches("[yn]"));
 
         if (answer.equals("y")) {
             do {
@@ -45,46 +111,210 @@ public class Main {
                     System.out.println("File does not exists.");
                 }
                 System.out.print("Please enter the file name: ");
-            } while (!(file = new File(in.readLine())).exists());
-            reader = new FindPathInputReaderFile(file);
+            } while (!(file = new File(readLine(in))).exists());
+            mapFile = file;
+            reader = createFileReader(file);
         } else {
             System.out.println();
             System.out.println("Please draw the rectangle map.");
-            System.out.println("Materials: \".\" - Air , \"#\" - Solid.");
-            System.out.println("Points: \"S\" - Start point, \"X\" - Destination point.");
+            System.out.println("Materials: \".\" - Air , \"#\" - Solid, \"1\" to \"9\" - Air with the move cost.");
+            System.out.println("Points: \"S\" - Start point, \"X\" - Destination point, the nearest one is used if there are more.");
             System.out.println("Then write DONE on the new line.");
             System.out.println();
-            reader = new FindPathReaderStdIn(System.in);
+            reader = new FindPathReaderStdIn(in);
         }
-        if (reader instanceof FindPathInputReaderFile) {
+        if (file != null) {
             System.out.println("Calculating path...");
-            calculatePath(reader,diagonal);
+            calculatePath(reader,diagonal,algorithm);
             do {
                 answer = null;
                 do {
                     if (answer != null) {
                         System.out.println("Wrong answer.");
                     }
-                    System.out.print("Reload the maze file ? y/n: ");
-                } while (!(answer = in.readLine()).matches("[yn]"));
+                    System.out.print("Reload the maze file ? y/n, w - watch for changes: ");
+                } while (!(answer = readLine(in)).matches("[ynw]"));
 
                 if (answer.equals("y")) {
-                    calculatePath(new FindPathInputReaderFile(file),diagonal);
+                    calculatePath(createFileReader(file),diagonal,algorithm);
+                } else if (answer.equals("w")) {
+                    File watched = file;
+                    MapWatcher watcher = new MapWatcher(file, () -> mapChanged(watched, diagonal, algorithm));
+                    try {
+                        System.out.println("Watching " + file + " for changes, press Enter to stop.");
+                        readLine(in);
+                    } finally {
+                        watcher.close();
+                    }
                 }
 
             } while (!answer.equals("n"));
 
         } else {
             System.out.println("Calculating path...");
-            calculatePath(reader,diagonal);
+            calculatePath(reader,diagonal,algorithm);
+        }
+
+    }
+
+    /**
+     * Reads one answer line from the console. The line is read byte by byte, so the bytes after it stay in the
+     * stream for the map reader instead of in a reader buffer.
+     *
+     * @return the line without the line end, or null at the end of the stream.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
         }
+        return line.toString();
+    }
 
+    /**
+     * Creates the reader for the map file, .pfm files are read as binary maps.
+     */
+    static AbstractFindPathInputReader createFileReader(File file) {
+        if (file.getName().toLowerCase().endsWith(".pfm")) {
+            return new FindPathInputReaderBinary(file);
+        }
+        return new FindPathInputReaderFile(file);
     }
 
-    public void calculatePath(AbstractFindPathInputReader reader,boolean diagonal) throws InterruptedException {
-        Thread mazeSolverThread = new Thread(new PathFinder(reader.getCharMap(),diagonal));
+    public void calculatePath(AbstractFindPathInputReader reader,boolean diagonal,SearchAlgorithm algorithm) throws InterruptedException {
+        calculatePath(reader.getMaze(), diagonal, algorithm);
+        if (reader.getError() != null) {
+            System.out.println(reader.getError());
+            System.out.println();
+        }
+    }
+
+    private synchronized void calculatePath(Maze maze, boolean diagonal, SearchAlgorithm algorithm) throws InterruptedException {
+        this.maze = maze;
+        this.lastResult = null;
+        PathFinder pathFinder;
+        if (maze != null && maze.getStartPoint() != null && maze.getDestinyPoint() != null) {
+            SearchOptions options = new SearchOptions(diagonal, algorithm);
+            attachLandmarks(maze, diagonal);
+            if (maze.hasManyDestinies()) {
+                lastResult = PathFinder.solveNearest(maze, options);
+            } else if (algorithm == SearchAlgorithm.D_STAR_LITE && maze.getCosts() == null) {
+                lastResult = replan(maze, diagonal);
+            } else {
+                lastResult = solver.solve(new PathQuery(maze, options));
+            }
+            pathFinder = new PathFinder(maze, lastResult);
+        } else {
+            pathFinder = new PathFinder(maze, diagonal, algorithm);
+        }
+        Thread mazeSolverThread = new Thread(pathFinder);
         mazeSolverThread.start();
         mazeSolverThread.join();
+        if (metrics != null) {
+            System.out.println(metrics);
+        }
+    }
+
+    /**
+     * Loads or builds the landmarks of the map file when they are enabled, maps with terrain costs have none.
+     */
+    private void attachLandmarks(Maze maze, boolean diagonal) {
+        Grid grid = maze.getGrid();
+        if (landmarkCount <= 0 || mapFile == null || maze.getCosts() != null || grid.getLandmarks(diagonal) != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Landmarks landmarks;
+        try {
+            landmarks = Landmarks.load(mapFile, grid, landmarkCount, diagonal);
+        } catch (IOException e) {
+            System.out.println("The landmarks can not be stored: " + e.getMessage());
+            landmarks = Landmarks.build(grid, landmarkCount, diagonal);
+        }
+        grid.setLandmarks(landmarks);
+        System.out.println("Landmarks: " + landmarks.getCount() + ", " + landmarks.getMemoryBytes() / 1024 + " KiB, "
+                + (System.nanoTime() - start) / 1000000 + " ms.");
+    }
+
+    /**
+     * Called by the {@link MapWatcher} after the map file changed. A text map with the size of the loaded maze
+     * is only compared with it, the changed cells are written into the loaded grid and the maze is solved again
+     * only when the changes can affect the last path. Other maps are reloaded.
+     */
+    private synchronized void mapChanged(File file, boolean diagonal, SearchAlgorithm algorithm) {
+        try {
+            MazeDiff diff = null;
+            if (maze != null && maze.getGrid() instanceof BitGrid && !file.getName().toLowerCase().endsWith(".pfm")) {
+                diff = MazeDiff.read(maze, file);
+            }
+            if (diff == null) {
+                System.out.println();
+                System.out.println("The maze file changed, calculating path...");
+                calculatePath(createFileReader(file), diagonal, algorithm);
+            } else if (!diff.isEmpty()) {
+                boolean affected = diff.affects(lastResult);
+                Maze changed = planner != null && planner.getGrid() == maze.getGrid() ? diff.apply(planner) : diff.apply();
+                int cells = diff.getSolidCells().length + diff.getAirCells().length;
+                System.out.println();
+                if (affected) {
+                    System.out.println("The maze file changed in " + cells + " cells, calculating path...");
+                    calculatePath(changed, diagonal, algorithm);
+                } else {
+                    maze = changed;
+                    System.out.println("The maze file changed in " + cells + " cells, the path is not affected.");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("The maze file can not be read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Solves the maze with the D* Lite planner. When the previous maze had the same size, destiny and movement,
+     * only the cells which differ are changed in the planner and the previous path is repaired.
+     */
+    private PathResult replan(Maze maze, boolean diagonal) {
+        SearchOptions options = new SearchOptions(diagonal, SearchAlgorithm.D_STAR_LITE);
+        PathQuery query = new PathQuery(maze, options);
+        Grid grid = maze.getGrid();
+        long start = System.nanoTime();
+        if (planner != null && planner.getGrid() instanceof BitGrid && planner.isDiagonal() == diagonal
+                && planner.getGrid().getWidth() == grid.getWidth() && planner.getGrid().getHeight() == grid.getHeight()
+                && planner.getGoalCell() == query.getDestinyCell()) {
+            Grid planned = planner.getGrid();
+            int width = grid.getWidth();
+            int cells = grid.getCellCount();
+            for (int w = 0; w < (cells + 63) >>> 6; w++) {
+                long changed = planned.word(w) ^ grid.word(w);
+                while (changed != 0) {
+                    int cell = (w << 6) + Long.numberOfTrailingZeros(changed);
+                    changed &= changed - 1;
+                    if (cell < cells) {
+                        planner.setCell(cell / width, cell % width, grid.isSolid(cell));
+                    }
+                }
+            }
+            planner.setStart(query.getStartCell());
+        } else {
+            planner = new DynamicPlanner(grid, query.getStartCell(), query.getDestinyCell(), diagonal);
+        }
+        int[] path = planner.findPath();
+        long solveNanos = System.nanoTime() - start;
+        PathResult result = new PathResult(new PathQuery(planner.getGrid(), query.getStartCell(), query.getDestinyCell(), options),
+                path, path == null ? -1 : path.length - 1, planner.getStatistics(), solveNanos);
+        Metrics.search(result);
+        return result;
     }
 
 
@@ -0,0 +1,41 @@
+package sk.typre.pathfinder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts text maps to the binary map file format.
+ * <p>
+ * Usage: {@code MapConverter <map.txt> [map.pfm]}, the target defaults to the source name with the .pfm extension.
+ */
+public class MapConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: MapConverter <map.txt> [map.pfm]");
+            return;
+        }
+        File source = new File(args[0]);
+        File target = new File(args.length == 2 ? args[1] : toBinaryName(args[0]));
+        FindPathInputReaderFile reader = new FindPathInputReaderFile(source);
+        Maze maze = reader.getMaze();
+        if (maze == null) {
+            System.out.println("Wrong map format. " + reader.getError());
+            return;
+        }
+        if (maze.getCosts() != null) {
+            System.out.println("Terrain costs are not supported by the binary map format.");
+            return;
+        }
+        if (maze.hasManyDestinies()) {
+            System.out.println("Many destinies are not supported by the binary map format.");
+            return;
+        }
+        BinaryMapFile.write(maze, target);
+        System.out.println("Converted " + source + " to " + target + ".");
+    }
+
+    private static String toBinaryName(String name) {
+        int dot = name.lastIndexOf('.');
+        return (dot > name.lastIndexOf(File.separatorChar) ? name.substring(0, dot) : name) + ".pfm";
+    }
+}
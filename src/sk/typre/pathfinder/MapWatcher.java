@@ -0,0 +1,86 @@
+package sk.typre.pathfinder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a map file with a {@link WatchService} and runs the listener on its own thread whenever the file
+ * is written or replaced.
+ * <p>
+ * Editors often write a file in several steps, so the listener runs once the file has been quiet for a short
+ * while instead of once per event.
+ */
+public class MapWatcher implements Closeable {
+    private static final long QUIET_MILLIS = 100;
+
+    private final Path file;
+    private final Runnable listener;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Starts watching the file.
+     *
+     * @param file     Watched map file.
+     * @param listener Called on the watcher thread after the file changed.
+     */
+    public MapWatcher(File file, Runnable listener) throws IOException {
+        this.file = file.getAbsoluteFile().toPath();
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "map-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = poll(key);
+                //Wait for the writes to settle
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= poll(key);
+                }
+                if (changed) {
+                    listener.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //closed
+        }
+    }
+
+    /**
+     * @return returns true if one of the events is about the watched file.
+     */
+    private boolean poll(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && file.getFileName().equals(context));
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
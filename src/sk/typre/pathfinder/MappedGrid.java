@@ -0,0 +1,26 @@
+package sk.typre.pathfinder;
+
+import java.nio.LongBuffer;
+
+/**
+ * Grid read in place from a memory-mapped {@link BinaryMapFile}, the cells are never copied onto the heap.
+ */
+public class MappedGrid extends Grid {
+    private final LongBuffer words;
+
+    /**
+     * @param words Row-major bitset, a set bit is solid.
+     */
+    MappedGrid(int width, int height, LongBuffer words) {
+        super(width, height);
+        if (words.remaining() < wordCount) {
+            throw new IllegalArgumentException("Expected " + wordCount + " words, got " + words.remaining());
+        }
+        this.words = words;
+    }
+
+    @Override
+    public long word(int index) {
+        return words.get(index);
+    }
+}
@@ -0,0 +1,105 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A loaded map, the grid with the start point and one or more destiny points.
+ */
+public class Maze {
+    private final Grid grid;
+    private final Point startPoint;
+    private final List<Point> destinyPoints;
+    private final TerrainCosts costs;
+
+    /**
+     * @param grid         Map grid.
+     * @param startPoint   Start point, null if the map has no start.
+     * @param destinyPoint Destiny point, null if the map has no destiny.
+     */
+    public Maze(Grid grid, Point startPoint, Point destinyPoint) {
+        this(grid, startPoint, destinyPoint == null ? Collections.<Point>emptyList() : Collections.singletonList(destinyPoint));
+    }
+
+    /**
+     * @param grid          Map grid.
+     * @param startPoint    Start point, null if the map has no start.
+     * @param destinyPoints Destiny points in the map order, empty if the map has no destiny.
+     */
+    public Maze(Grid grid, Point startPoint, List<Point> destinyPoints) {
+        this(grid, startPoint, destinyPoints, null);
+    }
+
+    /**
+     * @param grid          Map grid.
+     * @param startPoint    Start point, null if the map has no start.
+     * @param destinyPoints Destiny points in the map order, empty if the map has no destiny.
+     * @param costs         Terrain costs, null if every step costs the same.
+     */
+    public Maze(Grid grid, Point startPoint, List<Point> destinyPoints, TerrainCosts costs) {
+        this.grid = grid;
+        this.startPoint = startPoint;
+        this.destinyPoints = Collections.unmodifiableList(new ArrayList<>(destinyPoints));
+        this.costs = costs;
+    }
+
+    /**
+     * Builds the maze from the char map.
+     *
+     * @param charMap Char map made of '#', '.', 'S' and 'X'.
+     * @return the maze, or null if the map is not in the correct format.
+     */
+    public static Maze fromCharMap(char[][] charMap) {
+        if (charMap == null) {
+            return null;
+        }
+        long start = Metrics.start();
+        MazeBuilder builder = new MazeBuilder();
+        for (char[] row : charMap) {
+            if (!builder.addRow(row, row.length)) {
+                return null;
+            }
+        }
+        Maze maze = builder.build();
+        Metrics.phase(Phase.CONVERT, start);
+        return maze;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public Point getStartPoint() {
+        return startPoint;
+    }
+
+    /**
+     * @return the terrain costs, or null if every step costs the same.
+     */
+    public TerrainCosts getCosts() {
+        return costs;
+    }
+
+    /**
+     * @return the first destiny point, or null if the map has no destiny.
+     */
+    public Point getDestinyPoint() {
+        return destinyPoints.isEmpty() ? null : destinyPoints.get(0);
+    }
+
+    /**
+     * @return all destiny points in the map order.
+     */
+    public List<Point> getDestinyPoints() {
+        return destinyPoints;
+    }
+
+    /**
+     * @return returns true if the map has more than one destiny.
+     */
+    public boolean hasManyDestinies() {
+        return destinyPoints.size() > 1;
+    }
+}
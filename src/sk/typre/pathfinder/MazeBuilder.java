@@ -0,0 +1,122 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link Maze} row by row while the map is being read.
+ * <p>
+ * The rows are written straight into a growing bitset with the final row-major layout, so the map
+ * is never held as characters, and the start and destiny points are located in the same pass.
+ * The map is rejected as soon as a row has an unknown character, a different width than the first
+ * row, or a second start point. A map may have any number of destiny points. The terrain costs are
+ * only allocated when the first cost digit is read.
+ */
+class MazeBuilder {
+    private long[] words = new long[16];
+    private int width = -1;
+    private int height;
+    private Point startPoint;
+    private final List<Point> destinyPoints = new ArrayList<>();
+    private byte[] costs;
+    private boolean valid = true;
+    private String error;
+
+    /**
+     * Appends the next row of the map.
+     *
+     * @param line   Row characters.
+     * @param length Number of characters used in the line array.
+     * @return returns true if the map is still in the correct format otherwise false.
+     */
+    boolean addRow(char[] line, int length) {
+        if (!valid) {
+            return false;
+        }
+        if (width < 0) {
+            width = length;
+        }
+        if (width == 0) {
+            return fail("Line " + (height + 1) + ": empty row.");
+        }
+        if (length != width) {
+            return fail("Line " + (height + 1) + ": row has " + length + " characters, expected " + width + ".");
+        }
+        if ((long) (height + 1) * width > Integer.MAX_VALUE) {
+            return fail("Line " + (height + 1) + ": the map is too large.");
+        }
+        int rowStart = height * width;
+        int needed = (rowStart + width + 63) >>> 6;
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length << 1));
+        }
+        if (costs != null && rowStart + width > costs.length) {
+            growCosts(rowStart + width);
+        }
+        for (int x = 0; x < length; x++) {
+            char c = line[x];
+            int cost;
+            if (c == '#') {
+                int cell = rowStart + x;
+                words[cell >>> 6] |= 1L << cell;
+            } else if (c == 'S') {
+                if (startPoint != null) {
+                    return fail("Line " + (height + 1) + ", column " + (x + 1) + ": second start point, the first one is at line "
+                            + (startPoint.y + 1) + ", column " + (startPoint.x + 1) + ".");
+                }
+                startPoint = new Point(x, height);
+            } else if (c == 'X') {
+                destinyPoints.add(new Point(x, height));
+            } else if ((cost = TerrainCosts.parse(c)) != 0) {
+                if (costs == null) {
+                    growCosts(rowStart + width);
+                }
+                costs[rowStart + x] = (byte) cost;
+            } else if (c != '.') {
+                return fail("Line " + (height + 1) + ", column " + (x + 1) + ": unknown character '" + c + "'.");
+            }
+        }
+        height++;
+        return true;
+    }
+
+    private boolean fail(String message) {
+        error = message;
+        return valid = false;
+    }
+
+    /**
+     * @return the reason the map was rejected, or null if it is in the correct format.
+     */
+    String getError() {
+        return error;
+    }
+
+    /**
+     * Grows the costs to at least the cell count, the new cells cost {@link TerrainCosts#MIN_COST}.
+     */
+    private void growCosts(int cells) {
+        int from = costs == null ? 0 : costs.length;
+        costs = costs == null ? new byte[Math.max(cells, 1024)] : Arrays.copyOf(costs, Math.max(cells, from << 1));
+        Arrays.fill(costs, from, costs.length, (byte) TerrainCosts.MIN_COST);
+    }
+
+    /**
+     * @return the maze, or null if the map is empty or not in the correct format.
+     */
+    Maze build() {
+        if (valid && height == 0) {
+            error = "The map is empty.";
+        }
+        if (!valid || height == 0) {
+            return null;
+        }
+        BitGrid grid = new BitGrid(width, height, Arrays.copyOf(words, (width * height + 63) >>> 6));
+        //Hash while the words are still in the cache, the result cache keys on it
+        grid.getContentHash();
+        TerrainCosts terrainCosts = costs == null ? null : new TerrainCosts(width, height, Arrays.copyOf(costs, width * height));
+        return new Maze(grid, startPoint, destinyPoints, terrainCosts);
+    }
+}
@@ -0,0 +1,283 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Cells which differ between a loaded maze and a new version of its map.
+ * <p>
+ * The new map is read row by row and every row is packed 64 cells at a time and compared with the same
+ * cells of the loaded grid, so unchanged rows cost a word comparison and no grid is built. The changes can
+ * then be written into the loaded grid instead of reloading the whole map. Maps with terrain costs are not
+ * compared, a cost digit counts as a wrong character.
+ */
+public class MazeDiff {
+    private final Maze maze;
+    private final Point startPoint;
+    private final List<Point> destinyPoints;
+    private final int[] solidCells;
+    private final int[] airCells;
+
+    private MazeDiff(Maze maze, Point startPoint, List<Point> destinyPoints, int[] solidCells, int[] airCells) {
+        this.maze = maze;
+        this.startPoint = startPoint;
+        this.destinyPoints = destinyPoints;
+        this.solidCells = solidCells;
+        this.airCells = airCells;
+    }
+
+    /**
+     * Compares the map file with the loaded maze.
+     *
+     * @param maze Loaded maze.
+     * @param file Text map file.
+     * @return the differences, or null if the new map has another size or is not in the correct format.
+     */
+    public static MazeDiff read(Maze maze, File file) throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            return read(maze, reader);
+        }
+    }
+
+    /**
+     * Compares the map read from the Reader with the loaded maze.
+     *
+     * @param maze   Loaded maze.
+     * @param reader Text map.
+     * @return the differences, or null if the new map has another size, terrain costs or is not in the correct format.
+     */
+    public static MazeDiff read(Maze maze, Reader reader) throws IOException {
+        if (maze.getCosts() != null) {
+            return null;
+        }
+        RowComparator comparator = new RowComparator(maze.getGrid());
+        char[] buffer = new char[1 << 16];
+        char[] line = new char[256];
+        int lineLength = 0;
+        boolean valid = true;
+
+        int read;
+        while (valid && (read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read && valid; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    valid = comparator.compareRow(line, lineLength);
+                    lineLength = 0;
+                } else if (c != '\r') {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, lineLength << 1);
+                    }
+                    line[lineLength++] = c;
+                }
+            }
+        }
+        if (valid && lineLength > 0) {
+            valid = comparator.compareRow(line, lineLength);
+        }
+        if (!valid || comparator.y != maze.getGrid().getHeight()) {
+            return null;
+        }
+        return new MazeDiff(maze, comparator.startPoint, comparator.destinyPoints,
+                Arrays.copyOf(comparator.solidCells, comparator.solidCount), Arrays.copyOf(comparator.airCells, comparator.airCount));
+    }
+
+    /**
+     * @return returns true if no cell and no point changed.
+     */
+    public boolean isEmpty() {
+        return solidCells.length == 0 && airCells.length == 0 && !isPointChanged();
+    }
+
+    public boolean isPointChanged() {
+        return !Objects.equals(startPoint, maze.getStartPoint()) || !destinyPoints.equals(maze.getDestinyPoints());
+    }
+
+    /**
+     * @return ids of the cells which turned solid, in ascending order.
+     */
+    public int[] getSolidCells() {
+        return solidCells;
+    }
+
+    /**
+     * @return ids of the cells which turned air, in ascending order.
+     */
+    public int[] getAirCells() {
+        return airCells;
+    }
+
+    public Point getStartPoint() {
+        return startPoint;
+    }
+
+    public List<Point> getDestinyPoints() {
+        return destinyPoints;
+    }
+
+    /**
+     * Checks the changes can make the solved path wrong or not optimal. As all steps cost the same, a path
+     * stays optimal when the points did not move, no cell turned air, no cell of the path turned solid and no
+     * diagonal step of the path got blocked by the corner rule of {@link Grid#neighbours}.
+     *
+     * @param result Path solved on the loaded maze, null if there is none.
+     * @return returns true if the maze has to be solved again.
+     */
+    public boolean affects(PathResult result) {
+        if (result == null || isPointChanged() || airCells.length > 0) {
+            return true;
+        }
+        if (!result.isFound() || solidCells.length == 0) {
+            return false;
+        }
+        int[] path = result.getPath().clone();
+        Arrays.sort(path);
+        for (int cell : solidCells) {
+            if (Arrays.binarySearch(path, cell) >= 0) {
+                return true;
+            }
+        }
+        int[] steps = result.getPath();
+        int width = maze.getGrid().getWidth();
+        for (int i = 1; i < steps.length; i++) {
+            int fromY = steps[i - 1] / width;
+            int fromX = steps[i - 1] % width;
+            int toY = steps[i] / width;
+            int toX = steps[i] % width;
+            if (fromY != toY && fromX != toX) {
+                int first = fromY * width + toX;
+                int second = toY * width + fromX;
+                if ((isNewSolid(first) || isNewSolid(second)) && isSolidAfter(first) && isSolidAfter(second)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isNewSolid(int cell) {
+        return Arrays.binarySearch(solidCells, cell) >= 0;
+    }
+
+    /**
+     * Checks the cell is solid in the new map, called only when no cell turned air.
+     */
+    private boolean isSolidAfter(int cell) {
+        return maze.getGrid().isSolid(cell) || isNewSolid(cell);
+    }
+
+    /**
+     * Writes the changed cells into the grid of the loaded maze.
+     *
+     * @return the loaded maze with the new start and destiny points.
+     * @throws UnsupportedOperationException if the grid is read-only.
+     */
+    public Maze apply() {
+        if (!(maze.getGrid() instanceof BitGrid)) {
+            throw new UnsupportedOperationException("The grid is read-only.");
+        }
+        BitGrid grid = (BitGrid) maze.getGrid();
+        int width = grid.getWidth();
+        for (int cell : solidCells) {
+            grid.setSolid(cell / width, cell % width, true);
+        }
+        for (int cell : airCells) {
+            grid.setSolid(cell / width, cell % width, false);
+        }
+        return new Maze(grid, startPoint, destinyPoints);
+    }
+
+    /**
+     * Writes the changed cells through the planner working on the grid of the loaded maze, so it can replan.
+     *
+     * @return the loaded maze with the new start and destiny points.
+     */
+    public Maze apply(DynamicPlanner planner) {
+        if (planner.getGrid() != maze.getGrid()) {
+            throw new IllegalArgumentException("The planner works on another grid.");
+        }
+        int width = maze.getGrid().getWidth();
+        for (int cell : solidCells) {
+            planner.setCell(cell / width, cell % width, true);
+        }
+        for (int cell : airCells) {
+            planner.setCell(cell / width, cell % width, false);
+        }
+        return new Maze(maze.getGrid(), startPoint, destinyPoints);
+    }
+
+    /**
+     * Compares the rows of the new map with the rows of the grid.
+     */
+    private static class RowComparator {
+        private final Grid grid;
+        private final int width;
+        private int y;
+        private Point startPoint;
+        private final List<Point> destinyPoints = new ArrayList<>();
+        private int[] solidCells = new int[16];
+        private int solidCount;
+        private int[] airCells = new int[16];
+        private int airCount;
+
+        RowComparator(Grid grid) {
+            this.grid = grid;
+            this.width = grid.getWidth();
+        }
+
+        /**
+         * @return returns true if the row has the width of the grid and the correct format otherwise false.
+         */
+        boolean compareRow(char[] line, int length) {
+            if (length != width || y >= grid.getHeight()) {
+                return false;
+            }
+            int rowStart = y * width;
+            for (int x = 0; x < width; x += 64) {
+                int end = Math.min(width, x + 64);
+                long solid = 0;
+                for (int n = x; n < end; n++) {
+                    char c = line[n];
+                    if (c == '#') {
+                        solid |= 1L << (n - x);
+                    } else if (c == 'S') {
+                        if (startPoint != null) {
+                            return false;
+                        }
+                        startPoint = new Point(n, y);
+                    } else if (c == 'X') {
+                        destinyPoints.add(new Point(n, y));
+                    } else if (c != '.') {
+                        return false;
+                    }
+                }
+                long mask = end - x == 64 ? -1L : (1L << (end - x)) - 1;
+                long changed = (solid ^ grid.bits(rowStart + x)) & mask;
+                while (changed != 0) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    changed &= changed - 1;
+                    int cell = rowStart + x + bit;
+                    if ((solid >>> bit & 1) != 0) {
+                        if (solidCount == solidCells.length) {
+                            solidCells = Arrays.copyOf(solidCells, solidCount << 1);
+                        }
+                        solidCells[solidCount++] = cell;
+                    } else {
+                        if (airCount == airCells.length) {
+                            airCells = Arrays.copyOf(airCells, airCount << 1);
+                        }
+                        airCells[airCount++] = cell;
+                    }
+                }
+            }
+            y++;
+            return true;
+        }
+    }
+}
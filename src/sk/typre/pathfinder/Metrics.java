@@ -0,0 +1,60 @@
+package sk.typre.pathfinder;
+
+/**
+ * Holds the installed {@link MetricsListener}.
+ * <p>
+ * Without a listener the instrumented code only reads one volatile field and skips the timing calls.
+ */
+public class Metrics {
+    private static volatile MetricsListener listener;
+
+    private Metrics() {
+    }
+
+    /**
+     * @param metricsListener Listener receiving the metrics, null to disable them.
+     */
+    public static void setListener(MetricsListener metricsListener) {
+        listener = metricsListener;
+    }
+
+    public static MetricsListener getListener() {
+        return listener;
+    }
+
+    public static boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * @return the current time when metrics are enabled, otherwise 0.
+     */
+    static long start() {
+        return listener != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Reports the phase started at the time returned by {@link #start()}.
+     */
+    static void phase(Phase phase, long start) {
+        MetricsListener metricsListener = listener;
+        if (metricsListener != null && start != 0) {
+            metricsListener.phaseCompleted(phase, System.nanoTime() - start);
+        }
+    }
+
+    static void cache(boolean hit) {
+        MetricsListener metricsListener = listener;
+        if (metricsListener != null) {
+            metricsListener.cacheLookup(hit);
+        }
+    }
+
+    static void search(PathResult result) {
+        MetricsListener metricsListener = listener;
+        if (metricsListener != null) {
+            metricsListener.phaseCompleted(Phase.SOLVE, result.getSolveNanos());
+            metricsListener.searchCompleted(result);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package sk.typre.pathfinder;
+
+/**
+ * Receives the search counters and phase timings, installed with {@link Metrics#setListener}.
+ * <p>
+ * The listener is called on the thread doing the work, possibly from many threads at once.
+ */
+public interface MetricsListener {
+    /**
+     * A phase of a query is finished.
+     *
+     * @param phase Finished phase.
+     * @param nanos Time spent in the phase.
+     */
+    void phaseCompleted(Phase phase, long nanos);
+
+    /**
+     * A search is finished.
+     *
+     * @param result Search result with its statistics.
+     */
+    void searchCompleted(PathResult result);
+
+    /**
+     * A query was looked up in a {@link PathCache}.
+     *
+     * @param hit True if the path was cached and no search ran.
+     */
+    default void cacheLookup(boolean hit) {
+    }
+}
@@ -0,0 +1,155 @@
+package sk.typre.pathfinder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of solved paths, shared by any number of {@link PathSolver} instances.
+ * <p>
+ * A path is keyed by the {@link Grid#getContentHash() content hash} and size of the map, the terrain costs, the start and destiny
+ * cells and the search options, so the same map loaded twice hits the same entries. A grid which changes gets
+ * a new hash, its old paths are never returned again and fall out as the least recently used entries.
+ * <p>
+ * The paths are copied when they are stored and when they are returned, so a caller changing the path of a
+ * result does not change the cached path. The cache is thread safe.
+ */
+public class PathCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final LinkedHashMap<Key, CachedPath> entries;
+    private long hits;
+    private long misses;
+
+    public PathCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximum number of paths, the least recently used path is evicted above it.
+     */
+    public PathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks the query up.
+     *
+     * @return result with a copy of the stored path and empty search statistics, or null if the path is not cached.
+     */
+    public PathResult get(PathQuery query) {
+        long start = System.nanoTime();
+        Key key = new Key(query);
+        CachedPath entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+        Metrics.cache(entry != null);
+        if (entry == null) {
+            return null;
+        }
+        return new PathResult(query, entry.path == null ? null : entry.path.clone(), entry.cost, new SearchStatistics(), System.nanoTime() - start);
+    }
+
+    /**
+     * Stores a copy of the path of the result under its query.
+     */
+    public void put(PathResult result) {
+        Key key = new Key(result.getQuery());
+        CachedPath entry = new CachedPath(result.getPath() == null ? null : result.getPath().clone(), result.getCost());
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private static class Key {
+        private final long contentHash;
+        private final long costsHash;
+        private final int width;
+        private final int height;
+        private final int startCell;
+        private final int destinyCell;
+        private final boolean diagonal;
+        private final SearchAlgorithm algorithm;
+        private final Heuristic heuristic;
+
+        Key(PathQuery query) {
+            Grid grid = query.getGrid();
+            SearchOptions options = query.getOptions();
+            this.contentHash = grid.getContentHash();
+            this.costsHash = query.getCosts() == null ? 0 : query.getCosts().getContentHash();
+            this.width = grid.getWidth();
+            this.height = grid.getHeight();
+            this.startCell = query.getStartCell();
+            this.destinyCell = query.getDestinyCell();
+            this.diagonal = options.isDiagonal();
+            this.algorithm = options.getAlgorithm();
+            this.heuristic = options.getHeuristic();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return contentHash == key.contentHash && costsHash == key.costsHash && width == key.width && height == key.height
+                    && startCell == key.startCell && destinyCell == key.destinyCell && diagonal == key.diagonal
+                    && algorithm == key.algorithm && heuristic.equals(key.heuristic);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(contentHash ^ costsHash);
+            result = 31 * result + startCell;
+            result = 31 * result + destinyCell;
+            result = 31 * result + (diagonal ? 1 : 0);
+            result = 31 * result + algorithm.ordinal();
+            return result;
+        }
+    }
+
+    private static class CachedPath {
+        private final int[] path;
+        private final int cost;
+
+        CachedPath(int[] path, int cost) {
+            this.path = path;
+            this.cost = cost;
+        }
+    }
+}
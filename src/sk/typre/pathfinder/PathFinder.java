@@ -1,266 +1,194 @@
 package sk.typre.pathfinder;
 
 import java.awt.*;
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 
 /**
  * An implementation for a PathFinder.
- *
+ * <p>
+ * {@link #solve(Maze, SearchOptions)} only searches the path, running the PathFinder also renders
+ * the result with a {@link PathRenderer} and prints it.
  */
 public class PathFinder implements Runnable {
-    private final char[][] originalMap;
-    private final boolean diagonal;
+    private final Maze maze;
+    private final SearchOptions options;
+    private final PathResult result;
 
     public PathFinder(char[][] originalMap, boolean diagonal) {
-        this.originalMap = originalMap;
-        this.diagonal = diagonal;
+        this(Maze.fromCharMap(originalMap), diagonal, SearchAlgorithm.A_STAR);
     }
 
-    /**
-     * A new task that will print the result
-     */
-
-    @Override
-    public void run() {
-        if (checkMap(originalMap)) {
-            System.out.println();
-            int[][] convertedMap = convertMap(originalMap, '#');
-            Point startPoint = getStartPoint(originalMap);
-            Point destinyPoint = getDestinyPoint(originalMap);
-
-            if (startPoint == null || destinyPoint == null) {
-                System.out.println("Start or end point is not defined.");
-                System.out.println();
-                return;
-            }
-
-            long start = System.currentTimeMillis();
-            List<int[]> path = calculateMapPath(convertedMap, startPoint, destinyPoint, diagonal);
-            long end = System.currentTimeMillis();
-
-            if (path == null) {
-                System.out.println("Path not found.");
-                System.out.println();
-            } else {
-
-                String map = getSolvedMap(path, originalMap);
+    public PathFinder(char[][] originalMap, boolean diagonal, SearchAlgorithm algorithm) {
+        this(Maze.fromCharMap(originalMap), diagonal, algorithm);
+    }
 
-                System.out.println(map);
-                System.out.println();
-                System.out.println("Path found in " + (end - start) + " ms.");
-                System.out.println();
-                if (!diagonal) {
-                    String steps = getPathSteps(path);
-                    System.out.println("Steps: " + steps);
-                }else {
-                    System.out.println("Don't use diagonal option to view the solution steps.");
-                }
-                System.out.println();
-            }
-        } else {
-            System.out.println();
-            System.out.println("Wrong map format.");
-        }
+    public PathFinder(Maze maze, boolean diagonal) {
+        this(maze, diagonal, SearchAlgorithm.A_STAR);
     }
 
     /**
-     * Verifies that the map is in the correct format
-     *
-     * @param originalMap Original char map.
-     * @return returns true if the map passes otherwise false.
+     * @param maze      Loaded maze, null if the map is not in the correct format.
+     * @param diagonal  Include diagonal steps.
+     * @param algorithm Search engine used to compute the path.
      */
-
-    private boolean checkMap(char[][] originalMap) {
-        if (originalMap == null) {
-            return false;
-        }
-        boolean startFound = false;
-        boolean destinyFound = false;
-
-        int length = originalMap[0].length;
-        for (char[] chars : originalMap) {
-            for (char c : chars) {
-                if (c != '#' && c != '.' && c != 'S' && c != 'X') {
-                    return false;
-                }
-                if (length != chars.length) {
-                    return false;
-                }
-                if (!startFound) {
-                    if (c == 'S') {
-                        startFound = true;
-                    }
-                } else if (c == 'S') {
-                    return false;
-                }
-                if (!destinyFound) {
-                    if (c == 'X') {
-                        destinyFound = true;
-                    }
-                } else if (c == 'X') {
-                    return false;
-                }
-            }
-        }
-        return true;
+    public PathFinder(Maze maze, boolean diagonal, SearchAlgorithm algorithm) {
+        this(maze, new SearchOptions(diagonal, algorithm));
     }
 
     /**
-     * Create path steps from the path list.
-     *
-     * @param path Path generated from the A* Algorithm.
-     * @return returns a String composed of individual steps.
+     * @param maze    Loaded maze, null if the map is not in the correct format.
+     * @param options Search options.
      */
-
-    private String getPathSteps(List<int[]> path) {
-        if (path == null) {
-            throw new RuntimeException();
-        }
-        StringBuilder stringBuilder = new StringBuilder();
-        int[] last = null;
-        int size = path.size() - 1;
-        for (int i = 0; i <= size; i++) {
-            if (i != 0) {
-                if (last[0] < path.get(i)[0]) {
-                    stringBuilder.append("d").append(i < size ? "," : "");
-                } else if (last[0] > path.get(i)[0]) {
-                    stringBuilder.append("u").append(i < size ? "," : "");
-                } else if (last[1] < path.get(i)[1]) {
-                    stringBuilder.append("r").append(i < size ? "," : "");
-                } else if (last[1] > path.get(i)[1]) {
-                    stringBuilder.append("l").append(i < size ? "," : "");
-                }
-
-                if (i%32 == 0){
-                    stringBuilder.append("\n");
-                }
-            }
-            last = path.get(i);
-        }
-        return new String(stringBuilder);
+    public PathFinder(Maze maze, SearchOptions options) {
+        this.maze = maze;
+        this.options = options;
+        this.result = null;
     }
 
     /**
-     * Compute the map path with A* Algorithm.
+     * Prints a path already solved for the maze, for example by a {@link DynamicPlanner}.
      *
-     * @param convertedMap Map converted to int array.
-     * @param start Start point.
-     * @param destiny Destiny point.
-     * @param diagonal Include diagonal steps.
-     * @return returns a Path composed of individual steps.
+     * @param maze   Loaded maze.
+     * @param result Solved path of the maze.
      */
-
-    private List<int[]> calculateMapPath(int[][] convertedMap, Point start, Point destiny, boolean diagonal) {
-        if (convertedMap == null || start == null || destiny == null) {
-            throw new RuntimeException();
-        }
-        return AStarAlgorithm.getPath(convertedMap, new int[]{start.y, start.x}, new int[]{destiny.y, destiny.x}, diagonal);
+    public PathFinder(Maze maze, PathResult result) {
+        this.maze = maze;
+        this.options = result.getQuery().getOptions();
+        this.result = result;
     }
 
     /**
-     * Creates a String map for output to the console.
+     * Searches the path from the start to the destiny point of the maze, nothing is printed. A maze with many
+     * destiny points is solved to the nearest one.
      *
-     * @param path Path generated from the A* Algorithm.
-     * @param originalMap Original char map.
-     * @return returns a String map.
+     * @param maze    Loaded maze.
+     * @param options Search options.
+     * @return the path with its cost, expanded cell count and search time.
      */
-
-    private String getSolvedMap(List<int[]> path, char[][] originalMap) {
-        if (path == null || originalMap == null) {
-            throw new RuntimeException();
+    public static PathResult solve(Maze maze, SearchOptions options) {
+        if (maze == null) {
+            throw new IllegalArgumentException("Wrong map format.");
         }
-        StringBuilder stringBuilder = new StringBuilder();
-        for (int i = 0; i < originalMap.length; i++) {
-            for (int n = 0; n < originalMap[i].length; n++) {
-                stringBuilder.append(locInPath(path, i, n) ? '*' : originalMap[i][n]);
-            }
-            if (i < originalMap.length - 1) {
-                stringBuilder.append("\n");
-            }
+        if (maze.getStartPoint() == null || maze.getDestinyPoint() == null) {
+            throw new IllegalArgumentException("Start or end point is not defined.");
         }
-        return new String(stringBuilder);
+        if (maze.hasManyDestinies()) {
+            return solveNearest(maze, options);
+        }
+        return new PathSolver().solve(new PathQuery(maze, options));
     }
 
     /**
-     * Checks if there is an x,y position in the path.
+     * Searches the path from the start to the nearest destiny point of the maze with a {@link DistanceField},
+     * or with the {@link WeightedSearch} when the maze has terrain costs. The search stops at the first destiny
+     * reached, the engine and heuristic of the options are not used.
      *
-     * @param path Path generated from the A* Algorithm.
-     * @param x X coordinate.
-     * @param y Y coordinate.
-     * @return returns true if the searched character is found otherwise false.
+     * @param maze    Loaded maze.
+     * @param options Search options.
+     * @return the path to the nearest destiny, the query of the result has that destiny.
      */
-    private boolean locInPath(List<int[]> path, int x, int y) {
-        if (path == null) {
-            throw new RuntimeException();
+    public static PathResult solveNearest(Maze maze, SearchOptions options) {
+        Grid grid = maze.getGrid();
+        int startCell = grid.cell(maze.getStartPoint().y, maze.getStartPoint().x);
+        int[] destinyCells = new int[maze.getDestinyPoints().size()];
+        for (int i = 0; i < destinyCells.length; i++) {
+            Point destiny = maze.getDestinyPoints().get(i);
+            destinyCells[i] = grid.cell(destiny.y, destiny.x);
         }
-        for (int i = 1; i < path.size() - 1; i++) {
-            if (path.get(i)[0] == x && path.get(i)[1] == y) {
-                return true;
-            }
+        long start = System.nanoTime();
+        int[] path;
+        int cost;
+        SearchStatistics statistics;
+        if (maze.getCosts() != null) {
+            WeightedSearch search = new WeightedSearch();
+            path = search.findNearest(grid, maze.getCosts(), startCell, destinyCells, options.isDiagonal());
+            cost = search.getCost();
+            statistics = search.getStatistics();
+        } else {
+            DistanceField field = DistanceField.nearest(grid, startCell, destinyCells, options.isDiagonal());
+            int nearest = field.getNearestTarget();
+            path = nearest == DistanceField.UNREACHABLE ? null : field.getPath(nearest);
+            cost = path == null ? -1 : path.length - 1;
+            statistics = field.getStatistics();
         }
-        return false;
+        long solveNanos = System.nanoTime() - start;
+        PathQuery query = new PathQuery(grid, startCell, path == null ? destinyCells[0] : path[path.length - 1], options, maze.getCosts());
+        PathResult result = new PathResult(query, path, cost, statistics, solveNanos);
+        Metrics.search(result);
+        return result;
     }
 
     /**
-     * Converts the map from char array to integer array.
+     * Routes many starts to one destiny with the {@link FlowField} of the destiny, cached with the grid until a
+     * cell changes. The field is computed once, every start then follows it in O(path length). Every step costs 1,
+     * the engine and heuristic of the options are not used.
      *
-     * @param originalMap Original char map.
-     * @param solid Char represented as solid object.
-     * @return returns the converted map from char array to integer array.
+     * @param grid        Maze grid.
+     * @param startCells  Start cell ids.
+     * @param destinyCell Destiny cell id.
+     * @param options     Search options.
+     * @return the path of every start in the order of the starts.
      */
-
-    private int[][] convertMap(char[][] originalMap, char solid) {
-        if (originalMap == null) {
-            throw new RuntimeException();
-        }
-        int[][] converted = new int[originalMap.length][originalMap[0].length];
-        for (int i = 0; i < originalMap.length; i++) {
-            for (int n = 0; n < originalMap[i].length; n++) {
-                converted[i][n] = originalMap[i][n] == solid ? 1 : 0;
-            }
+    public static PathResult[] solveMany(Grid grid, int[] startCells, int destinyCell, SearchOptions options) {
+        FlowField field = grid.getFlowField(destinyCell, options.isDiagonal());
+        PathResult[] results = new PathResult[startCells.length];
+        for (int i = 0; i < startCells.length; i++) {
+            long start = System.nanoTime();
+            int[] path = field.getPath(startCells[i]);
+            long solveNanos = System.nanoTime() - start;
+            PathQuery query = new PathQuery(grid, startCells[i], destinyCell, options);
+            results[i] = new PathResult(query, path, path == null ? -1 : path.length - 1, new SearchStatistics(), solveNanos);
+            Metrics.search(results[i]);
         }
-        return converted;
-    }
-    /**
-     * Calculates the starting position on the map
-     *
-     * @param originalMap Original char map.
-     * @return returns the start point.
-     */
-    private Point getStartPoint(char[][] originalMap) {
-        return getMapPoint(originalMap, 'S');
-    }
-    /**
-     * Calculates the destiny position on the map
-     *
-     * @param originalMap Original char map.
-     * @return returns the destiny point.
-     */
-    private Point getDestinyPoint(char[][] originalMap) {
-        return getMapPoint(originalMap, 'X');
+        return results;
     }
 
     /**
-     * Calculates at which position on the map the input character is located
-     *
-     * @param originalMap Original char map.
-     * @param sign Character that needs to be found.
-     * @return returns the point at which the input character is located otherwise null.
+     * A new task that will print the result
      */
 
-    private Point getMapPoint(char[][] originalMap, char sign) {
-        if (originalMap == null) {
-            throw new RuntimeException();
-        }
-        for (int i = 0; i < originalMap.length; i++) {
-            for (int n = 0; n < originalMap[i].length; n++) {
-                if (originalMap[i][n] == sign) {
-                    return new Point(n, i);
+    @Override
+    public void run() {
+        if (maze != null) {
+            System.out.println();
+
+            if (maze.getStartPoint() == null || maze.getDestinyPoint() == null) {
+                System.out.println("Start or end point is not defined.");
+                System.out.println();
+                return;
+            }
+
+            PathResult result = this.result != null ? this.result : solve(maze, options);
+
+            if (!result.isFound()) {
+                System.out.println("Path not found.");
+                System.out.println();
+            } else {
+                PathRenderer renderer = new PathRenderer();
+
+                PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+                renderer.writeSolvedMap(result, maze.getDestinyPoints(), writer);
+                writer.println();
+                writer.flush();
+                System.out.println();
+                System.out.println("Path found in " + result.getSolveNanos() / 1000000 + " ms.");
+                if (maze.hasManyDestinies()) {
+                    int destiny = result.getQuery().getDestinyCell();
+                    int width = result.getQuery().getGrid().getWidth();
+                    System.out.println("Nearest of " + maze.getDestinyPoints().size() + " destinies is at "
+                            + destiny % width + "," + destiny / width + ".");
                 }
+                System.out.println();
+                String steps = renderer.getPathSteps(result);
+                System.out.println("Steps: " + steps);
+                System.out.println();
             }
+        } else {
+            System.out.println();
+            System.out.println("Wrong map format.");
         }
-        return null;
     }
 
-
 }
@@ -0,0 +1,85 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+
+/**
+ * One path query, the map with its terrain costs, the start and destiny cells and the search options.
+ * <p>
+ * Many queries may share one grid, the grid must not be changed while they are being solved.
+ */
+public class PathQuery {
+    private final Grid grid;
+    private final int startCell;
+    private final int destinyCell;
+    private final SearchOptions options;
+    private final TerrainCosts costs;
+
+    /**
+     * @param grid        Map grid.
+     * @param startCell   Start cell id.
+     * @param destinyCell Destiny cell id.
+     * @param options     Search options.
+     */
+    public PathQuery(Grid grid, int startCell, int destinyCell, SearchOptions options) {
+        this(grid, startCell, destinyCell, options, null);
+    }
+
+    /**
+     * @param grid        Map grid.
+     * @param startCell   Start cell id.
+     * @param destinyCell Destiny cell id.
+     * @param options     Search options.
+     * @param costs       Terrain costs of the grid, null if every step costs the same.
+     */
+    public PathQuery(Grid grid, int startCell, int destinyCell, SearchOptions options, TerrainCosts costs) {
+        if (grid == null || options == null) {
+            throw new IllegalArgumentException("Grid and options are required.");
+        }
+        if (startCell < 0 || startCell >= grid.getCellCount() || destinyCell < 0 || destinyCell >= grid.getCellCount()) {
+            throw new IllegalArgumentException("Start or destiny is outside of the map.");
+        }
+        if (costs != null && (costs.getWidth() != grid.getWidth() || costs.getHeight() != grid.getHeight())) {
+            throw new IllegalArgumentException("Costs do not match the map size.");
+        }
+        this.grid = grid;
+        this.startCell = startCell;
+        this.destinyCell = destinyCell;
+        this.options = options;
+        this.costs = costs;
+    }
+
+    public PathQuery(Grid grid, Point start, Point destiny, SearchOptions options) {
+        this(grid, grid.cell(start.y, start.x), grid.cell(destiny.y, destiny.x), options);
+    }
+
+    /**
+     * Query from the start to the first destiny point of the maze, with the costs of the maze.
+     */
+    public PathQuery(Maze maze, SearchOptions options) {
+        this(maze.getGrid(), maze.getGrid().cell(maze.getStartPoint().y, maze.getStartPoint().x),
+                maze.getGrid().cell(maze.getDestinyPoint().y, maze.getDestinyPoint().x), options, maze.getCosts());
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public int getStartCell() {
+        return startCell;
+    }
+
+    public int getDestinyCell() {
+        return destinyCell;
+    }
+
+    public SearchOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return the terrain costs, or null if every step costs the same.
+     */
+    public TerrainCosts getCosts() {
+        return costs;
+    }
+}
@@ -0,0 +1,210 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * Formats a solved {@link PathResult} for output, the rendering stage after solving.
+ * <p>
+ * The map is rendered in a single row-major pass, the path cells are marked once in a bitset of the map and
+ * the bits of every row are read a word at a time while it is written, so rendering costs
+ * O(width * height + path length).
+ * Rows are written from one reusable char buffer, {@link #writeSolvedMap} streams them without holding
+ * the whole map in memory.
+ */
+public class PathRenderer {
+    /**
+     * Step names in the {@link Grid#neighbours} direction order.
+     */
+    private static final String[] STEP_NAMES = {"l", "r", "u", "d", "ul", "ur", "dl", "dr"};
+
+    /**
+     * Creates a String map for output to the console.
+     *
+     * @param result Solved path.
+     * @return returns a String map.
+     */
+    public String getSolvedMap(PathResult result) {
+        Grid grid = result.getQuery().getGrid();
+        long capacity = (long) grid.getHeight() * (grid.getWidth() + 1);
+        StringWriter writer = new StringWriter((int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        writeSolvedMap(result, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes the map with the path row by row, rows are separated by a new line.
+     *
+     * @param result Solved path.
+     * @param writer Target of the map, not flushed or closed.
+     */
+    public void writeSolvedMap(PathResult result, Writer writer) {
+        writeSolvedMap(result, null, writer);
+    }
+
+    /**
+     * Writes the map with the path and every destiny row by row, for a path to the nearest of many destinies.
+     *
+     * @param result    Solved path.
+     * @param destinies Destiny points marked besides the destiny of the path, or null.
+     * @param writer    Target of the map, not flushed or closed.
+     */
+    public void writeSolvedMap(PathResult result, Collection<Point> destinies, Writer writer) {
+        if (result == null || !result.isFound()) {
+            throw new IllegalArgumentException("Path is not found.");
+        }
+        long start = Metrics.start();
+        PathQuery query = result.getQuery();
+        Grid grid = query.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        TerrainCosts costs = query.getCosts();
+        int[] path = result.getPath();
+        long[] pathCells = new long[(grid.getCellCount() + 63) >>> 6];
+        for (int i = 1; i < path.length - 1; i++) {
+            pathCells[path[i] >>> 6] |= 1L << path[i];
+        }
+        int[] destinyCells = destinies == null ? new int[0] : destinies.stream().mapToInt(p -> grid.cell(p.y, p.x)).sorted().toArray();
+
+        char[] row = new char[width + 1];
+        row[width] = '\n';
+        int nextDestiny = 0;
+        try {
+            for (int y = 0; y < height; y++) {
+                int rowStart = y * width;
+                for (int x = 0; x < width; x += 64) {
+                    long solid = grid.bits(rowStart + x);
+                    int end = Math.min(width, x + 64);
+                    for (int n = x; n < end; n++) {
+                        row[n] = (solid >>> (n - x) & 1) != 0 ? '#' : '.';
+                    }
+                }
+                if (costs != null) {
+                    for (int n = 0; n < width; n++) {
+                        int cost = costs.getCost(rowStart + n);
+                        if (cost != TerrainCosts.MIN_COST && row[n] == '.') {
+                            row[n] = (char) ('0' + cost);
+                        }
+                    }
+                }
+                int rowEnd = rowStart + width;
+                for (int x = 0; x < width; x += 64) {
+                    long marked = bits(pathCells, rowStart + x);
+                    if (width - x < 64) {
+                        marked &= (1L << (width - x)) - 1;
+                    }
+                    for (; marked != 0; marked &= marked - 1) {
+                        row[x + Long.numberOfTrailingZeros(marked)] = '*';
+                    }
+                }
+                for (; nextDestiny < destinyCells.length && destinyCells[nextDestiny] < rowEnd; nextDestiny++) {
+                    row[destinyCells[nextDestiny] - rowStart] = 'X';
+                }
+                mark(row, query.getStartCell(), rowStart, rowEnd, 'S');
+                mark(row, query.getDestinyCell(), rowStart, rowEnd, 'X');
+                writer.write(row, 0, y < height - 1 ? width + 1 : width);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Metrics.phase(Phase.RENDER, start);
+    }
+
+    /**
+     * Create path steps from the path, one comma separated step per move, 32 steps per line.
+     * Straight steps are written as u, d, l, r and diagonal steps as ul, ur, dl, dr.
+     *
+     * @param result Solved path.
+     * @return returns a String composed of individual steps.
+     */
+    public String getPathSteps(PathResult result) {
+        byte[] directions = getDirections(result);
+        StringBuilder stringBuilder = new StringBuilder(directions.length * 3);
+        int size = directions.length;
+        for (int i = 1; i <= size; i++) {
+            stringBuilder.append(STEP_NAMES[directions[i - 1]]).append(i < size ? "," : "");
+            if (i % 32 == 0) {
+                stringBuilder.append("\n");
+            }
+        }
+        return new String(stringBuilder);
+    }
+
+    /**
+     * Create run-length encoded path steps, every run of equal steps is written as its length and the step,
+     * for example {@code 3r,2d,4dr}.
+     *
+     * @param result Solved path.
+     * @return returns a String composed of the step runs.
+     */
+    public String getRunLengthSteps(PathResult result) {
+        byte[] directions = getDirections(result);
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < directions.length; ) {
+            int run = i + 1;
+            while (run < directions.length && directions[run] == directions[i]) {
+                run++;
+            }
+            if (i > 0) {
+                stringBuilder.append(",");
+            }
+            stringBuilder.append(run - i).append(STEP_NAMES[directions[i]]);
+            i = run;
+        }
+        return new String(stringBuilder);
+    }
+
+    /**
+     * Encodes every step of the path as one byte, the index of its direction in the {@link Grid#neighbours}
+     * order: 0 left, 1 right, 2 up, 3 down, 4 up-left, 5 up-right, 6 down-left, 7 down-right.
+     *
+     * @param result Solved path.
+     * @return the step directions.
+     */
+    public byte[] getDirections(PathResult result) {
+        if (result == null || !result.isFound()) {
+            throw new IllegalArgumentException("Path is not found.");
+        }
+        int width = result.getQuery().getGrid().getWidth();
+        int[] path = result.getPath();
+        byte[] directions = new byte[path.length - 1];
+        for (int i = 1; i < path.length; i++) {
+            int dy = Integer.signum(path[i] / width - path[i - 1] / width);
+            int dx = Integer.signum(path[i] % width - path[i - 1] % width);
+            directions[i - 1] = direction(dy, dx);
+        }
+        return directions;
+    }
+
+    private static byte direction(int dy, int dx) {
+        for (byte d = 0; d < 8; d++) {
+            if (Grid.DIRECTION_Y[d] == dy && Grid.DIRECTION_X[d] == dx) {
+                return d;
+            }
+        }
+        throw new IllegalArgumentException("Path cells are not adjacent.");
+    }
+
+    /**
+     * Returns 64 consecutive bits of the bitset starting at any bit, as {@link Grid#bits} does for the cells.
+     */
+    private static long bits(long[] set, int index) {
+        int w = index >>> 6;
+        int shift = index & 63;
+        long low = set[w] >>> shift;
+        if (shift == 0 || w + 1 >= set.length) {
+            return low;
+        }
+        return low | set[w + 1] << (64 - shift);
+    }
+
+    private static void mark(char[] row, int cell, int rowStart, int rowEnd, char c) {
+        if (cell >= rowStart && cell < rowEnd) {
+            row[cell - rowStart] = c;
+        }
+    }
+}
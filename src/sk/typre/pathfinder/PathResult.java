@@ -0,0 +1,58 @@
+package sk.typre.pathfinder;
+
+/**
+ * The answer to a {@link PathQuery}.
+ */
+public class PathResult {
+    private final PathQuery query;
+    private final int[] path;
+    private final int cost;
+    private final SearchStatistics statistics;
+    private final long solveNanos;
+
+    /**
+     * @param query      Solved query.
+     * @param path       Path composed of cell ids from start to destiny, null if there is no path.
+     * @param cost       Path cost, the number of steps or with terrain costs the {@link WeightedSearch} cost, -1 if there is no path.
+     * @param statistics Counters of the search.
+     * @param solveNanos Time spent in the search.
+     */
+    public PathResult(PathQuery query, int[] path, int cost, SearchStatistics statistics, long solveNanos) {
+        this.query = query;
+        this.path = path;
+        this.cost = cost;
+        this.statistics = statistics;
+        this.solveNanos = solveNanos;
+    }
+
+    public PathQuery getQuery() {
+        return query;
+    }
+
+    public boolean isFound() {
+        return path != null;
+    }
+
+    /**
+     * @return Path composed of cell ids {@code y * width + x} from start to destiny, or null if there is no path.
+     */
+    public int[] getPath() {
+        return path;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getExpandedCount() {
+        return statistics.getExpandedCount();
+    }
+
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    public long getSolveNanos() {
+        return solveNanos;
+    }
+}
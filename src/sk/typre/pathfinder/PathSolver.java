@@ -0,0 +1,114 @@
+package sk.typre.pathfinder;
+
+import java.util.List;
+
+/**
+ * Solves {@link PathQuery} objects with the engine chosen in their options.
+ * <p>
+ * The solver keeps one instance of every engine with its search buffers, so repeated queries reuse them.
+ * When the grid is labeled with {@link Grid#labelComponents()}, a destiny in another region than the start
+ * is reported as not found without searching. With {@link Landmarks} set on the grid the A* engines use their
+ * tighter bound. With a {@link PathCache} the solved paths are stored in it and
+ * a cached path is returned without searching. Queries with {@link TerrainCosts} are always solved by the
+ * {@link WeightedSearch}, the other engines count every step with the cost 1.
+ * An instance is not thread safe, use one solver per thread or borrow them from {@link BatchSolver}.
+ */
+public class PathSolver {
+    private final AStarSearch aStar = new AStarSearch();
+    private final JumpPointSearch jumpPoint = new JumpPointSearch();
+    private final BidirectionalSearch bidirectional = new BidirectionalSearch();
+    private final HierarchicalSearch hierarchical = new HierarchicalSearch();
+    private final WeightedSearch weighted = new WeightedSearch();
+    private final PathCache cache;
+
+    public PathSolver() {
+        this(null);
+    }
+
+    /**
+     * @param cache Cache of the solved paths, null to search every query.
+     */
+    public PathSolver(PathCache cache) {
+        this.cache = cache;
+    }
+
+    public PathResult solve(PathQuery query) {
+        if (cache != null) {
+            PathResult cached = cache.get(query);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        PathResult result = search(query);
+        if (cache != null) {
+            cache.put(result);
+        }
+        return result;
+    }
+
+    private PathResult search(PathQuery query) {
+        Grid grid = query.getGrid();
+        SearchOptions options = query.getOptions();
+        int startCell = query.getStartCell();
+        int destinyCell = query.getDestinyCell();
+        boolean diagonal = options.isDiagonal();
+
+        long start = System.nanoTime();
+        int[] path;
+        SearchStatistics statistics;
+        ConnectedComponents components = grid.getComponents();
+        if (components != null && components.isSeparated(startCell, destinyCell)) {
+            PathResult result = new PathResult(query, null, -1, new SearchStatistics(), System.nanoTime() - start);
+            Metrics.search(result);
+            return result;
+        }
+        if (query.getCosts() != null) {
+            path = weighted.findPath(grid, query.getCosts(), startCell, destinyCell, diagonal, options.getHeuristic());
+            PathResult result = new PathResult(query, path, weighted.getCost(), weighted.getStatistics(), System.nanoTime() - start);
+            Metrics.search(result);
+            return result;
+        }
+        switch (options.getAlgorithm()) {
+            case JUMP_POINT:
+                path = jumpPoint.findPath(grid, startCell, destinyCell, diagonal, options.getHeuristic());
+                statistics = jumpPoint.getStatistics();
+                break;
+            case BIDIRECTIONAL:
+                path = bidirectional.findPath(grid, startCell, destinyCell, diagonal, options.getHeuristic());
+                statistics = bidirectional.getStatistics();
+                break;
+            case HIERARCHICAL:
+                path = hierarchical.findPath(grid, startCell, destinyCell, diagonal, options.getHeuristic());
+                statistics = hierarchical.getStatistics();
+                break;
+            case D_STAR_LITE:
+                DynamicPlanner planner = new DynamicPlanner(grid, startCell, destinyCell, diagonal, options.getHeuristic());
+                path = planner.findPath();
+                statistics = planner.getStatistics();
+                break;
+            case PRIMITIVE_A_STAR:
+                path = aStar.findPath(grid, startCell, destinyCell, diagonal, options.getHeuristic());
+                statistics = aStar.getStatistics();
+                break;
+            default:
+                int width = grid.getWidth();
+                statistics = new SearchStatistics();
+                List<int[]> positions = AStarAlgorithm.getPath(grid, new int[]{startCell / width, startCell % width},
+                        new int[]{destinyCell / width, destinyCell % width}, diagonal, options.getHeuristic(), statistics);
+                path = positions == null ? null : toCells(positions, width);
+                break;
+        }
+        long solveNanos = System.nanoTime() - start;
+        PathResult result = new PathResult(query, path, path == null ? -1 : path.length - 1, statistics, solveNanos);
+        Metrics.search(result);
+        return result;
+    }
+
+    private static int[] toCells(List<int[]> positions, int width) {
+        int[] cells = new int[positions.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = positions.get(i)[0] * width + positions.get(i)[1];
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,23 @@
+package sk.typre.pathfinder;
+
+/**
+ * Stages of answering a path query, reported to the {@link MetricsListener}.
+ */
+public enum Phase {
+    /**
+     * Reading the map input into the grid.
+     */
+    PARSE,
+    /**
+     * Converting a char map into the grid.
+     */
+    CONVERT,
+    /**
+     * Searching the path.
+     */
+    SOLVE,
+    /**
+     * Formatting the solved map and steps.
+     */
+    RENDER
+}
@@ -0,0 +1,130 @@
+package sk.typre.pathfinder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a slow stream, a pipe or the console, ahead on its own thread, so the next bytes arrive while the
+ * previous ones are being parsed.
+ * <p>
+ * The reading thread fills a fixed set of buffers and hands them over through a bounded queue, a filled
+ * buffer is given back once it is consumed, so no more than the buffers are ever held. The reading thread
+ * is a daemon and stops at the end of the stream or after {@link #close()}.
+ */
+class PrefetchInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BUFFER_COUNT = 4;
+
+    private final InputStream in;
+    private final Thread thread;
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private Chunk current;
+    private int position;
+    private volatile boolean closed;
+
+    /**
+     * A filled buffer, a negative length marks the end of the stream.
+     */
+    private static final class Chunk {
+        private final byte[] buffer;
+        private final int length;
+        private final IOException exception;
+
+        Chunk(byte[] buffer, int length, IOException exception) {
+            this.buffer = buffer;
+            this.length = length;
+            this.exception = exception;
+        }
+    }
+
+    PrefetchInputStream(InputStream in) {
+        this.in = in;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(new byte[BUFFER_SIZE]);
+        }
+        thread = new Thread(this::prefetch, "map-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void prefetch() {
+        try {
+            while (!closed) {
+                byte[] buffer = free.take();
+                int length;
+                try {
+                    length = in.read(buffer);
+                } catch (IOException e) {
+                    filled.put(new Chunk(null, -1, e));
+                    return;
+                }
+                filled.put(new Chunk(buffer, length, null));
+                if (length < 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            //closed
+        }
+    }
+
+    /**
+     * Takes the next filled buffer once the current one is consumed.
+     *
+     * @return returns true if there are bytes to read otherwise false at the end of the stream.
+     */
+    private boolean next() throws IOException {
+        while (current == null || position == current.length) {
+            if (current != null) {
+                if (current.length < 0) {
+                    return false;
+                }
+                free.add(current.buffer);
+            }
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            position = 0;
+            if (current.exception != null) {
+                throw current.exception;
+            }
+            if (current.length < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return next() ? current.buffer[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!next()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current.buffer, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        in.close();
+    }
+}
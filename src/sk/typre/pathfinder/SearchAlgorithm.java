@@ -0,0 +1,41 @@
+package sk.typre.pathfinder;
+
+/**
+ * Search engines the PathFinder can solve the map with.
+ */
+public enum SearchAlgorithm {
+    /**
+     * {@link AStarAlgorithm#getPath}, node based A*.
+     */
+    A_STAR("A*"),
+    /**
+     * {@link AStarSearch}, allocation free A* on primitive arrays.
+     */
+    PRIMITIVE_A_STAR("Primitive A*"),
+    /**
+     * {@link JumpPointSearch}, jump point search for uniform-cost grids.
+     */
+    JUMP_POINT("Jump point search"),
+    /**
+     * {@link BidirectionalSearch}, A* from the start and the destiny at the same time.
+     */
+    BIDIRECTIONAL("Bidirectional A*"),
+    /**
+     * {@link HierarchicalSearch}, A* over precomputed clusters for very large maps.
+     */
+    HIERARCHICAL("Hierarchical A*"),
+    /**
+     * {@link DynamicPlanner}, D* Lite which repairs the previous path when a reloaded map changed.
+     */
+    D_STAR_LITE("D* Lite");
+
+    private final String title;
+
+    SearchAlgorithm(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,49 @@
+package sk.typre.pathfinder;
+
+/**
+ * How a path should be searched, the movement, the search engine and the heuristic.
+ */
+public class SearchOptions {
+    private final boolean diagonal;
+    private final SearchAlgorithm algorithm;
+    private final Heuristic heuristic;
+
+    /**
+     * Options with the default engine and the exact heuristic for the movement.
+     *
+     * @param diagonal Include diagonal steps.
+     */
+    public SearchOptions(boolean diagonal) {
+        this(diagonal, SearchAlgorithm.PRIMITIVE_A_STAR);
+    }
+
+    public SearchOptions(boolean diagonal, SearchAlgorithm algorithm) {
+        this(diagonal, algorithm, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * @param diagonal  Include diagonal steps.
+     * @param algorithm Search engine used to compute the path.
+     * @param heuristic Estimate of the remaining cost.
+     */
+    public SearchOptions(boolean diagonal, SearchAlgorithm algorithm, Heuristic heuristic) {
+        if (algorithm == null || heuristic == null) {
+            throw new IllegalArgumentException("Algorithm and heuristic are required.");
+        }
+        this.diagonal = diagonal;
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    public SearchAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+}
@@ -0,0 +1,209 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per-cell state of a best-first grid search.
+ * <p>
+ * g, f, parent and heap position live in primitive arrays indexed by the cell id {@code y * width + x}.
+ * The arrays are kept between searches and a generation stamp tells which entries belong to the
+ * current search, so a new search on a map of the same or smaller size does not clear or allocate
+ * anything. The open set is a binary min-heap of cell ids ordered by f with decrease-key.
+ */
+final class SearchState {
+    static final int CLOSED = -1;
+
+    int[] g = new int[0];
+    int[] f = new int[0];
+    int[] parent = new int[0];
+    private int[] heapPosition = new int[0];
+    private int[] stamp = new int[0];
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int generation;
+    private int expanded;
+    private int generated;
+    private int reopened;
+    private int peakOpenSize;
+
+    /**
+     * Grows the buffers to the map size and starts a new search generation.
+     *
+     * @param cells Number of cells in the map.
+     */
+    void prepare(int cells) {
+        if (stamp.length < cells) {
+            g = new int[cells];
+            f = new int[cells];
+            parent = new int[cells];
+            heapPosition = new int[cells];
+            stamp = new int[cells];
+            heap = new int[cells];
+            generation = 0;
+        }
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        expanded = 0;
+        generated = 0;
+        reopened = 0;
+        peakOpenSize = 0;
+    }
+
+    /**
+     * @return returns true if the cell was opened in this search, it may be closed already.
+     */
+    boolean isReached(int cell) {
+        return stamp[cell] == generation;
+    }
+
+    boolean isClosed(int cell) {
+        return stamp[cell] == generation && heapPosition[cell] == CLOSED;
+    }
+
+    boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    int getOpenSize() {
+        return heapSize;
+    }
+
+    /**
+     * @return the lowest f in the open set, the open set must not be empty.
+     */
+    int peekF() {
+        return f[heap[0]];
+    }
+
+    /**
+     * @return the number of cells polled from the open set in this search.
+     */
+    int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return the counters of this search.
+     */
+    SearchStatistics getStatistics() {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.set(expanded, generated, reopened, peakOpenSize);
+        return statistics;
+    }
+
+    /**
+     * Adds a cell reached for the first time in this search to the open set.
+     */
+    void open(int cell, int cellG, int cellH, int cellParent) {
+        stamp[cell] = generation;
+        g[cell] = cellG;
+        f[cell] = cellG + cellH;
+        parent[cell] = cellParent;
+        heap[heapSize] = cell;
+        siftUp(heapSize++);
+        generated++;
+        if (heapSize > peakOpenSize) {
+            peakOpenSize = heapSize;
+        }
+    }
+
+    /**
+     * Offers a way to the cell with the cost cellG, the cell is opened or its key decreased
+     * when the way is shorter than the known one.
+     *
+     * @return returns true if the cell was updated otherwise false.
+     */
+    boolean relax(int cell, int cellG, int cellH, int cellParent) {
+        if (stamp[cell] != generation) {
+            open(cell, cellG, cellH, cellParent);
+            return true;
+        }
+        if (heapPosition[cell] == CLOSED || cellG >= g[cell]) {
+            return false;
+        }
+        f[cell] -= g[cell] - cellG;
+        g[cell] = cellG;
+        parent[cell] = cellParent;
+        siftUp(heapPosition[cell]);
+        reopened++;
+        return true;
+    }
+
+    /**
+     * Removes the cell with the lowest f from the open set and closes it.
+     */
+    int poll() {
+        int first = heap[0];
+        heapPosition[first] = CLOSED;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            siftDown(0);
+        }
+        expanded++;
+        return first;
+    }
+
+    /**
+     * Follows the parents from the end cell back to the start cell.
+     *
+     * @return the visited cells from start to end.
+     */
+    int[] buildPath(int startCell, int endCell) {
+        int length = 1;
+        for (int cell = endCell; cell != startCell; cell = parent[cell]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int cell = endCell; length > 0; cell = parent[cell]) {
+            path[--length] = cell;
+        }
+        return path;
+    }
+
+    /**
+     * Orders the heap by f, ties are broken in favour of the cell closer to the goal (larger g).
+     */
+    private boolean less(int a, int b) {
+        return f[a] < f[b] || (f[a] == f[b] && g[a] > g[b]);
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        while (index > 0) {
+            int up = (index - 1) >>> 1;
+            int upCell = heap[up];
+            if (!less(cell, upCell)) {
+                break;
+            }
+            heap[index] = upCell;
+            heapPosition[upCell] = index;
+            index = up;
+        }
+        heap[index] = cell;
+        heapPosition[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            int childCell = heap[child];
+            if (!less(childCell, cell)) {
+                break;
+            }
+            heap[index] = childCell;
+            heapPosition[childCell] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapPosition[cell] = index;
+    }
+}
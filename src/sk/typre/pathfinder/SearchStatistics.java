@@ -0,0 +1,54 @@
+package sk.typre.pathfinder;
+
+/**
+ * Counters of one search.
+ * <p>
+ * The searches never open a closed cell again, so a re-opening is a decrease-key of a cell
+ * still in the open set.
+ */
+public class SearchStatistics {
+    private int expanded;
+    private int generated;
+    private int reopened;
+    private int peakOpenSize;
+
+    /**
+     * @return the number of cells taken from the open set and expanded.
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * @return the number of cells added to the open set.
+     */
+    public int getGeneratedCount() {
+        return generated;
+    }
+
+    /**
+     * @return the number of times a shorter way to an already open cell was found and its key decreased.
+     */
+    public int getReopenedCount() {
+        return reopened;
+    }
+
+    /**
+     * @return the largest size of the open set during the search.
+     */
+    public int getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    void set(int expanded, int generated, int reopened, int peakOpenSize) {
+        this.expanded = expanded;
+        this.generated = generated;
+        this.reopened = reopened;
+        this.peakOpenSize = peakOpenSize;
+    }
+
+    @Override
+    public String toString() {
+        return "expanded=" + expanded + ", generated=" + generated + ", reopened=" + reopened + ", peakOpen=" + peakOpenSize;
+    }
+}
@@ -0,0 +1,206 @@
+package sk.typre.pathfinder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MetricsListener} aggregating the searches into histograms, readable from code or over JMX.
+ */
+public class SolverMetrics implements MetricsListener, SolverMetricsMBean {
+    public static final String OBJECT_NAME = "sk.typre.pathfinder:type=SolverMetrics";
+
+    private final Histogram expanded = new Histogram();
+    private final Histogram generated = new Histogram();
+    private final Histogram peakOpenSize = new Histogram();
+    private final Histogram reopened = new Histogram();
+    private final Histogram[] phaseNanos = new Histogram[Phase.values().length];
+    private final AtomicLong found = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    public SolverMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Installs a new instance as the metrics listener and registers it in the platform MBean server.
+     *
+     * @return the installed metrics.
+     */
+    public static SolverMetrics install() {
+        SolverMetrics metrics = new SolverMetrics();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+        Metrics.setListener(metrics);
+        return metrics;
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void searchCompleted(PathResult result) {
+        SearchStatistics statistics = result.getStatistics();
+        expanded.record(statistics.getExpandedCount());
+        generated.record(statistics.getGeneratedCount());
+        peakOpenSize.record(statistics.getPeakOpenSize());
+        reopened.record(statistics.getReopenedCount());
+        if (result.isFound()) {
+            found.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void cacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).incrementAndGet();
+    }
+
+    public Histogram getExpanded() {
+        return expanded;
+    }
+
+    public Histogram getGenerated() {
+        return generated;
+    }
+
+    public Histogram getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    public Histogram getReopened() {
+        return reopened;
+    }
+
+    /**
+     * @return histogram of the phase times in nanoseconds.
+     */
+    public Histogram getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    @Override
+    public long getSearchCount() {
+        return expanded.getCount();
+    }
+
+    @Override
+    public long getFoundCount() {
+        return found.get();
+    }
+
+    @Override
+    public double getMeanExpanded() {
+        return expanded.getMean();
+    }
+
+    @Override
+    public long getExpandedP50() {
+        return expanded.getPercentile(50);
+    }
+
+    @Override
+    public long getExpandedP99() {
+        return expanded.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxExpanded() {
+        return expanded.getMax();
+    }
+
+    @Override
+    public long getMaxPeakOpenSize() {
+        return peakOpenSize.getMax();
+    }
+
+    @Override
+    public long getTotalReopened() {
+        return reopened.getSum();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public double getMeanSolveMicros() {
+        return getPhaseNanos(Phase.SOLVE).getMean() / 1000;
+    }
+
+    @Override
+    public long getSolveMicrosP50() {
+        return getPhaseNanos(Phase.SOLVE).getPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getSolveMicrosP99() {
+        return getPhaseNanos(Phase.SOLVE).getPercentile(99) / 1000;
+    }
+
+    @Override
+    public double getMeanParseMicros() {
+        return getPhaseNanos(Phase.PARSE).getMean() / 1000;
+    }
+
+    @Override
+    public double getMeanConvertMicros() {
+        return getPhaseNanos(Phase.CONVERT).getMean() / 1000;
+    }
+
+    @Override
+    public double getMeanRenderMicros() {
+        return getPhaseNanos(Phase.RENDER).getMean() / 1000;
+    }
+
+    @Override
+    public void reset() {
+        expanded.reset();
+        generated.reset();
+        peakOpenSize.reset();
+        reopened.reset();
+        for (Histogram histogram : phaseNanos) {
+            histogram.reset();
+        }
+        found.set(0);
+        cacheHits.set(0);
+        cacheMisses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(String.format("searches=%d found=%d expanded mean=%.1f p50=%d p99=%d max=%d peakOpen max=%d reopened=%d",
+                getSearchCount(), getFoundCount(), getMeanExpanded(), getExpandedP50(), getExpandedP99(), getMaxExpanded(),
+                getMaxPeakOpenSize(), getTotalReopened()));
+        if (getCacheHitCount() + getCacheMissCount() > 0) {
+            stringBuilder.append(String.format(" cache hits=%d misses=%d", getCacheHitCount(), getCacheMissCount()));
+        }
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = getPhaseNanos(phase);
+            if (histogram.getCount() > 0) {
+                stringBuilder.append(String.format("%n%-7s n=%d mean=%.1fus p50=%dus p99=%dus", phase, histogram.getCount(),
+                        histogram.getMean() / 1000, histogram.getPercentile(50) / 1000, histogram.getPercentile(99) / 1000));
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
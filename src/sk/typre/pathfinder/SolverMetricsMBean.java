@@ -0,0 +1,40 @@
+package sk.typre.pathfinder;
+
+/**
+ * JMX view of the {@link SolverMetrics}, times are in microseconds.
+ */
+public interface SolverMetricsMBean {
+    long getSearchCount();
+
+    long getFoundCount();
+
+    double getMeanExpanded();
+
+    long getExpandedP50();
+
+    long getExpandedP99();
+
+    long getMaxExpanded();
+
+    long getMaxPeakOpenSize();
+
+    long getTotalReopened();
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    double getMeanSolveMicros();
+
+    long getSolveMicrosP50();
+
+    long getSolveMicrosP99();
+
+    double getMeanParseMicros();
+
+    double getMeanConvertMicros();
+
+    double getMeanRenderMicros();
+
+    void reset();
+}
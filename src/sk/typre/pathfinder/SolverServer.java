@@ -0,0 +1,382 @@
+package sk.typre.pathfinder;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless solver listening on a local socket, the maps stay loaded between requests so a client pays
+ * neither the JVM startup nor the map parsing per query.
+ * <p>
+ * The protocol is line based ASCII, every request gets exactly one response line:
+ * <pre>
+ * MAP id width height         followed by height map rows  -> OK id width height
+ * SOLVE id [sx sy dx dy] [diagonal] [algorithm]           -> PATH cost [steps] | NOPATH
+ * DROP id                                                 -> OK id
+ * PING                                                    -> PONG
+ * QUIT                                                    -> BYE, the connection is closed
+ * </pre>
+ * Without coordinates SOLVE uses the S and X points of the map. The algorithm is a {@link SearchAlgorithm}
+ * name, the default is PRIMITIVE_A_STAR. The steps are the run-length encoded steps of
+ * {@link PathRenderer#getRunLengthSteps}, left out for a path of one cell. Wrong requests are answered
+ * with {@code ERR message}.
+ * <p>
+ * Every connection is served by its own thread, up to the connection limit. The searches run on a fixed
+ * worker pool with a bounded queue. A connection over the limit or a search which does not fit in the queue
+ * is answered with {@code BUSY}, so a loaded server pushes back on the clients instead of queueing without
+ * bound. The number of loaded maps and the cells of one map are limited too, a larger map is answered with
+ * {@code ERR} before anything is allocated for it and a map row longer than the map width is skipped without
+ * being kept. The workers share one {@link PathCache}.
+ */
+public class SolverServer implements Closeable {
+    public static final int DEFAULT_PORT = 7878;
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    public static final int DEFAULT_MAX_MAPS = 64;
+    /**
+     * Largest number of cells of one uploaded map, 4096 x 4096.
+     */
+    public static final int DEFAULT_MAX_CELLS = 1 << 24;
+
+    private final ServerSocket serverSocket;
+    private final ThreadPoolExecutor connections;
+    private final ThreadPoolExecutor workers;
+    private final int maxMaps;
+    private final int maxCells;
+    private final Map<String, Maze> mazes = new ConcurrentHashMap<>();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final PathCache cache = new PathCache();
+    private final ThreadLocal<PathSolver> solvers = ThreadLocal.withInitial(() -> new PathSolver(cache));
+
+    /**
+     * Server on the loopback address with the default limits and one worker per processor.
+     *
+     * @param port Port, 0 for any free port.
+     */
+    public SolverServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_MAPS);
+    }
+
+    /**
+     * Server with the default limit of the map size.
+     *
+     * @param port           Port on the loopback address, 0 for any free port.
+     * @param workerCount    Number of threads running the searches.
+     * @param queueCapacity  Number of searches waiting for a worker, more are rejected.
+     * @param maxConnections Number of connections served at once, more are rejected.
+     * @param maxMaps        Number of loaded maps.
+     */
+    public SolverServer(int port, int workerCount, int queueCapacity, int maxConnections, int maxMaps) throws IOException {
+        this(port, workerCount, queueCapacity, maxConnections, maxMaps, DEFAULT_MAX_CELLS);
+    }
+
+    /**
+     * @param port           Port on the loopback address, 0 for any free port.
+     * @param workerCount    Number of threads running the searches.
+     * @param queueCapacity  Number of searches waiting for a worker, more are rejected.
+     * @param maxConnections Number of connections served at once, more are rejected.
+     * @param maxMaps        Number of loaded maps.
+     * @param maxCells       Number of cells of one loaded map, larger maps are rejected before they are read.
+     */
+    public SolverServer(int port, int workerCount, int queueCapacity, int maxConnections, int maxMaps, int maxCells) throws IOException {
+        if (workerCount <= 0 || queueCapacity <= 0 || maxConnections <= 0 || maxMaps <= 0 || maxCells <= 0) {
+            throw new IllegalArgumentException("Limits must be positive.");
+        }
+        this.maxMaps = maxMaps;
+        this.maxCells = maxCells;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.connections = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                threadFactory("solver-connection-"));
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory("solver-worker-"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        try (SolverServer server = new SolverServer(port)) {
+            System.out.println("Listening on " + server.getAddress() + ":" + server.getPort() + ".");
+            server.serve();
+        }
+    }
+
+    public InetAddress getAddress() {
+        return serverSocket.getInetAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            try {
+                connections.execute(() -> handle(socket));
+            } catch (RejectedExecutionException e) {
+                try (Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+                    writer.write("BUSY\n");
+                } catch (IOException ignored) {
+                    //the client is gone
+                }
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Starts accepting connections on a daemon thread.
+     */
+    public void start() {
+        Thread thread = new Thread(() -> {
+            try {
+                serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "solver-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        connections.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void handle(Socket socket) {
+        clients.add(socket);
+        try (Socket client = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] request = line.trim().split("\\s+");
+                String command = request[0].toUpperCase(Locale.ROOT);
+                String response;
+                try {
+                    if (command.equals("QUIT")) {
+                        writer.write("BYE\n");
+                        writer.flush();
+                        return;
+                    }
+                    response = execute(command, request, reader);
+                } catch (IllegalArgumentException e) {
+                    response = "ERR " + e.getMessage();
+                }
+                writer.write(response);
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            //the connection is closed
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    private String execute(String command, String[] request, BufferedReader reader) throws IOException {
+        switch (command) {
+            case "MAP":
+                return loadMap(request, reader);
+            case "SOLVE":
+                return solve(request);
+            case "DROP":
+                checkArguments(request, 2);
+                return mazes.remove(request[1]) != null ? "OK " + request[1] : "ERR Unknown map " + request[1];
+            case "PING":
+                return "PONG";
+            default:
+                throw new IllegalArgumentException("Unknown command " + request[0]);
+        }
+    }
+
+    /**
+     * Reads the rows of the uploaded map and keeps the map under its id, replacing the previous map with that id.
+     */
+    private String loadMap(String[] request, BufferedReader reader) throws IOException {
+        checkArguments(request, 4);
+        String id = request[1];
+        int width = parseInt(request[2]);
+        int height = parseInt(request[3]);
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported map size " + width + "x" + height);
+        }
+        if ((long) width * height > maxCells) {
+            throw new IllegalArgumentException("Map is larger than " + maxCells + " cells.");
+        }
+        MazeBuilder builder = new MazeBuilder();
+        boolean valid = true;
+        char[] row = new char[width + 1];
+        for (int y = 0; y < height; y++) {
+            int length = readRow(reader, row);
+            valid &= length == width && builder.addRow(row, length);
+        }
+        Maze maze = valid ? builder.build() : null;
+        if (maze == null) {
+            throw new IllegalArgumentException("Wrong map format.");
+        }
+        maze.getGrid().labelComponents();
+        synchronized (mazes) {
+            if (!mazes.containsKey(id) && mazes.size() >= maxMaps) {
+                throw new IllegalArgumentException("Too many maps.");
+            }
+            mazes.put(id, maze);
+        }
+        return "OK " + id + " " + width + " " + height;
+    }
+
+    /**
+     * Reads one map row into the buffer, a row longer than the buffer is skipped to its end without keeping it.
+     *
+     * @return the length of the row without the line end, or -1 if the row does not fit in the buffer.
+     */
+    private static int readRow(BufferedReader reader, char[] row) throws IOException {
+        int length = 0;
+        boolean tooLong = false;
+        for (int c = reader.read(); c != '\n'; c = reader.read()) {
+            if (c == -1) {
+                throw new IOException("Connection closed in the map.");
+            }
+            if (length < row.length) {
+                row[length++] = (char) c;
+            } else {
+                tooLong = true;
+            }
+        }
+        if (tooLong) {
+            return -1;
+        }
+        return length > 0 && row[length - 1] == '\r' ? length - 1 : length;
+    }
+
+    private String solve(String[] request) {
+        if (request.length < 2) {
+            throw new IllegalArgumentException("Missing map id.");
+        }
+        Maze maze = mazes.get(request[1]);
+        if (maze == null) {
+            throw new IllegalArgumentException("Unknown map " + request[1]);
+        }
+        Grid grid = maze.getGrid();
+        int index = 2;
+        Point start = maze.getStartPoint();
+        Point destiny = maze.getDestinyPoint();
+        boolean nearest = maze.hasManyDestinies();
+        if (request.length >= 6 && request[2].matches("\\d+")) {
+            nearest = false;
+            start = new Point(parseInt(request[2]), parseInt(request[3]));
+            destiny = new Point(parseInt(request[4]), parseInt(request[5]));
+            index = 6;
+        }
+        boolean diagonal = false;
+        SearchAlgorithm algorithm = SearchAlgorithm.PRIMITIVE_A_STAR;
+        for (; index < request.length; index++) {
+            String option = request[index].toUpperCase(Locale.ROOT);
+            if (option.equals("DIAGONAL")) {
+                diagonal = true;
+            } else {
+                try {
+                    algorithm = SearchAlgorithm.valueOf(option);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown option " + request[index]);
+                }
+            }
+        }
+        if (start == null || destiny == null) {
+            throw new IllegalArgumentException("Start or end point is not defined.");
+        }
+        if (!grid.isWalkable(start.y, start.x) || !grid.isWalkable(destiny.y, destiny.x)) {
+            throw new IllegalArgumentException("Start or end point is not walkable.");
+        }
+        SearchOptions options = new SearchOptions(diagonal, algorithm);
+        boolean toNearest = nearest;
+        PathQuery query = new PathQuery(grid, grid.cell(start.y, start.x), grid.cell(destiny.y, destiny.x), options, maze.getCosts());
+
+        Future<PathResult> future;
+        try {
+            future = workers.submit(() -> toNearest ? PathFinder.solveNearest(maze, options) : solvers.get().solve(query));
+        } catch (RejectedExecutionException e) {
+            return "BUSY";
+        }
+        PathResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return "ERR Interrupted.";
+        } catch (ExecutionException e) {
+            return "ERR " + e.getCause();
+        }
+        if (!result.isFound()) {
+            return "NOPATH";
+        }
+        String steps = new PathRenderer().getRunLengthSteps(result);
+        return steps.isEmpty() ? "PATH " + result.getCost() : "PATH " + result.getCost() + " " + steps;
+    }
+
+    private static void checkArguments(String[] request, int count) {
+        if (request.length != count) {
+            throw new IllegalArgumentException("Expected " + (count - 1) + " arguments.");
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number " + value);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package sk.typre.pathfinder;
+
+/**
+ * The distance heuristics for grids.
+ * <p>
+ * The search engines count every step, straight or diagonal, with the cost 1, so without diagonal steps
+ * MANHATTAN is the exact distance on an empty map and with diagonal steps OCTILE and CHEBYSHEV are.
+ * EUCLIDEAN overestimates diagonal steps of cost 1 and only stays admissible when a diagonal step costs
+ * at least sqrt(2) straight steps.
+ */
+public enum StandardHeuristic implements Heuristic {
+    MANHATTAN {
+        @Override
+        public int estimate(int dy, int dx, int straightCost, int diagonalCost) {
+            return straightCost * (dy + dx);
+        }
+    },
+    CHEBYSHEV {
+        @Override
+        public int estimate(int dy, int dx, int straightCost, int diagonalCost) {
+            return Math.min(straightCost, diagonalCost) * Math.max(dy, dx);
+        }
+    },
+    OCTILE {
+        @Override
+        public int estimate(int dy, int dx, int straightCost, int diagonalCost) {
+            int diagonalSteps = Math.min(dy, dx);
+            return straightCost * (Math.max(dy, dx) - diagonalSteps) + Math.min(diagonalCost, 2 * straightCost) * diagonalSteps;
+        }
+    },
+    EUCLIDEAN {
+        @Override
+        public int estimate(int dy, int dx, int straightCost, int diagonalCost) {
+            return (int) (straightCost * Math.sqrt((double) dy * dy + (double) dx * dx));
+        }
+    };
+
+    /**
+     * @param diagonal Include diagonal steps.
+     * @return the exact admissible heuristic for the movement, MANHATTAN or OCTILE.
+     */
+    public static Heuristic forMovement(boolean diagonal) {
+        return diagonal ? OCTILE : MANHATTAN;
+    }
+}
@@ -0,0 +1,86 @@
+package sk.typre.pathfinder;
+
+/**
+ * Move costs of the walkable cells of a map, one byte per cell.
+ * <p>
+ * In the text format a walkable cell is '.' with the cost 1 or a digit from '1' to '9' with that cost.
+ * Entering a cell costs its terrain cost times {@link WeightedSearch#STRAIGHT_COST} for a straight step
+ * and times {@link WeightedSearch#DIAGONAL_COST} for a diagonal step. Maps without digits have no costs
+ * and are solved with the unit cost engines.
+ */
+public class TerrainCosts {
+    public static final int MIN_COST = 1;
+    public static final int MAX_COST = 9;
+
+    private final int width;
+    private final int height;
+    private final byte[] costs;
+    private final long contentHash;
+
+    /**
+     * @param width  Map width.
+     * @param height Map height.
+     * @param costs  Row-major cost of every cell, from {@link #MIN_COST} to {@link #MAX_COST}, solid cells are ignored.
+     *               The costs are copied.
+     */
+    public TerrainCosts(int width, int height, byte[] costs) {
+        costs = costs.clone();
+        if (costs.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " costs, got " + costs.length);
+        }
+        for (byte cost : costs) {
+            if (cost < MIN_COST || cost > MAX_COST) {
+                throw new IllegalArgumentException("Unsupported cost " + cost);
+            }
+        }
+        this.width = width;
+        this.height = height;
+        this.costs = costs;
+        this.contentHash = hash(width, height, costs);
+    }
+
+    /**
+     * Hashes the costs 8 at a time with the mix of {@link Grid#getContentHash()}.
+     */
+    private static long hash(int width, int height, byte[] costs) {
+        long hash = (long) width << 32 | height;
+        for (int i = 0; i < costs.length; i += 8) {
+            long word = 0;
+            for (int b = Math.min(8, costs.length - i) - 1; b >= 0; b--) {
+                word = word << 8 | costs[i + b] & 0xFF;
+            }
+            hash = GridCache.mix(hash, word);
+        }
+        return GridCache.finish(hash);
+    }
+
+    /**
+     * @return the cost of the map character, or 0 if the character is not a cost digit.
+     */
+    static int parse(char c) {
+        return c >= '0' + MIN_COST && c <= '0' + MAX_COST ? c - '0' : 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCost(int cell) {
+        return costs[cell];
+    }
+
+    public int getCost(int y, int x) {
+        return costs[y * width + x];
+    }
+
+    /**
+     * @return hash of the costs, maps with the same costs have the same hash.
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+}
@@ -0,0 +1,38 @@
+package sk.typre.pathfinder;
+
+/**
+ * Weighted A* heuristic, multiplies the estimate of another heuristic by epsilon.
+ * <p>
+ * With an admissible base heuristic the found path costs at most epsilon times the optimal one,
+ * in exchange the search expands fewer cells.
+ */
+public class WeightedHeuristic implements Heuristic {
+    private final Heuristic heuristic;
+    private final double epsilon;
+
+    /**
+     * @param heuristic Base heuristic.
+     * @param epsilon   Weight, at least 1.
+     */
+    public WeightedHeuristic(Heuristic heuristic, double epsilon) {
+        if (heuristic == null || !(epsilon >= 1)) {
+            throw new IllegalArgumentException("Epsilon must be at least 1: " + epsilon);
+        }
+        this.heuristic = heuristic;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int estimate(int dy, int dx, int straightCost, int diagonalCost) {
+        return (int) (epsilon * heuristic.estimate(dy, dx, straightCost, diagonalCost));
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    @Override
+    public String toString() {
+        return heuristic + " x " + epsilon;
+    }
+}
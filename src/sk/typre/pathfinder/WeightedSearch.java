@@ -0,0 +1,256 @@
+package sk.typre.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * A* Search Algorithm for maps with {@link TerrainCosts}.
+ * <p>
+ * Entering a cell costs its terrain cost times {@link #STRAIGHT_COST} for a straight step and times
+ * {@link #DIAGONAL_COST} for a diagonal step, 14 / 10 approximates sqrt(2). The step costs are small integers,
+ * so the open set is a bucket queue: a ring of {@value #BUCKETS} lists indexed by f, each cell linked into the
+ * list of its f. A consistent heuristic raises f by at most twice the largest step cost from a cell to its
+ * neighbour, far less than the ring, so a push, a decrease-key and a poll are O(1). An inconsistent heuristic
+ * may put f outside the ring, such f is clamped to the ring and the search is no longer exact.
+ * <p>
+ * The per-cell arrays are kept between searches with a generation stamp like {@link SearchState}.
+ * An instance is not thread safe, use one instance per thread.
+ */
+public class WeightedSearch {
+    public static final int STRAIGHT_COST = 10;
+    public static final int DIAGONAL_COST = 14;
+
+    private static final int BUCKETS = 1 << 10;
+    private static final int MASK = BUCKETS - 1;
+    private static final int NONE = -1;
+    private static final int CLOSED = -1;
+
+    private final int[] bucketHead = new int[BUCKETS];
+    private int[] g = new int[0];
+    private int[] key = new int[0];
+    private int[] parent = new int[0];
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    private int[] stamp = new int[0];
+    private int generation;
+    private int cursor;
+    private int openSize;
+    private int expanded;
+    private int generated;
+    private int reopened;
+    private int peakOpenSize;
+    private int cost;
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param costs     Terrain costs of the grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, TerrainCosts costs, int startCell, int endCell, boolean diagonal) {
+        return findPath(grid, costs, startCell, endCell, diagonal, StandardHeuristic.forMovement(diagonal));
+    }
+
+    /**
+     * Calculate the path from the start cell to the destiny cell.
+     *
+     * @param grid      Maze grid.
+     * @param costs     Terrain costs of the grid.
+     * @param startCell Start cell id.
+     * @param endCell   End cell id.
+     * @param diagonal  Include diagonal steps.
+     * @param heuristic Estimate of the remaining cost, called with the costs of a step over the cheapest terrain.
+     * @return Path composed of cell ids {@code y * width + x} from start to end, or null if there is no path.
+     */
+    public int[] findPath(Grid grid, TerrainCosts costs, int startCell, int endCell, boolean diagonal, Heuristic heuristic) {
+        return search(grid, costs, startCell, endCell, null, diagonal, heuristic);
+    }
+
+    /**
+     * Calculate the cheapest path from the start cell to the nearest of the target cells, the search stops
+     * when the first target is closed.
+     *
+     * @param grid        Maze grid.
+     * @param costs       Terrain costs of the grid.
+     * @param startCell   Start cell id.
+     * @param targetCells Target cell ids.
+     * @param diagonal    Include diagonal steps.
+     * @return Path composed of cell ids {@code y * width + x} from start to the nearest target, or null if no target is reachable.
+     */
+    public int[] findNearest(Grid grid, TerrainCosts costs, int startCell, int[] targetCells, boolean diagonal) {
+        long[] targets = new long[(grid.getCellCount() + 63) >>> 6];
+        for (int cell : targetCells) {
+            targets[cell >>> 6] |= 1L << cell;
+        }
+        return search(grid, costs, startCell, NONE, targets, diagonal, null);
+    }
+
+    /**
+     * @return the cost of the last found path.
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the number of cells expanded by the last search.
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * @return the counters of the last search.
+     */
+    public SearchStatistics getStatistics() {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.set(expanded, generated, reopened, peakOpenSize);
+        return statistics;
+    }
+
+    /**
+     * Searches to the end cell, or without a heuristic to the first of the targets when targets are given.
+     */
+    private int[] search(Grid grid, TerrainCosts costs, int startCell, int endCell, long[] targets, boolean diagonal, Heuristic heuristic) {
+        if (costs.getWidth() != grid.getWidth() || costs.getHeight() != grid.getHeight()) {
+            throw new IllegalArgumentException("Costs do not match the map size.");
+        }
+        int width = grid.getWidth();
+        prepare(grid.getCellCount());
+        int endY = endCell / width;
+        int endX = endCell - endY * width;
+
+        cursor = heuristic == null ? 0 : heuristic.estimate(Math.abs(startCell / width - endY), Math.abs(startCell % width - endX),
+                STRAIGHT_COST, DIAGONAL_COST);
+        open(startCell, 0, cursor, startCell);
+        while (openSize > 0) {
+            int current = poll();
+            if (current == endCell || (targets != null && (targets[current >>> 6] & (1L << current)) != 0)) {
+                cost = g[current];
+                return buildPath(startCell, current);
+            }
+            int cy = current / width;
+            int cx = current - cy * width;
+            int currentG = g[current];
+
+            int moves = grid.neighbours(cy, cx, diagonal);
+            while (moves != 0) {
+                int d = Integer.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int ny = cy + Grid.DIRECTION_Y[d];
+                int nx = cx + Grid.DIRECTION_X[d];
+                int child = ny * width + nx;
+                int childG = currentG + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST) * costs.getCost(child);
+                if (stamp[child] != generation) {
+                    int h = heuristic == null ? 0 : heuristic.estimate(Math.abs(ny - endY), Math.abs(nx - endX), STRAIGHT_COST, DIAGONAL_COST);
+                    open(child, childG, childG + h, current);
+                } else if (childG < g[child]) {
+                    int f = key[child] == CLOSED ? childG + (heuristic == null ? 0
+                            : heuristic.estimate(Math.abs(ny - endY), Math.abs(nx - endX), STRAIGHT_COST, DIAGONAL_COST))
+                            : key[child] - (g[child] - childG);
+                    if (key[child] != CLOSED) {
+                        unlink(child);
+                    }
+                    g[child] = childG;
+                    parent[child] = current;
+                    link(child, f);
+                    reopened++;
+                }
+            }
+        }
+        cost = -1;
+        return null;
+    }
+
+    private void prepare(int cells) {
+        if (stamp.length < cells) {
+            g = new int[cells];
+            key = new int[cells];
+            parent = new int[cells];
+            next = new int[cells];
+            previous = new int[cells];
+            stamp = new int[cells];
+            generation = 0;
+        }
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        Arrays.fill(bucketHead, NONE);
+        openSize = 0;
+        expanded = 0;
+        generated = 0;
+        reopened = 0;
+        peakOpenSize = 0;
+    }
+
+    private void open(int cell, int cellG, int cellF, int cellParent) {
+        stamp[cell] = generation;
+        g[cell] = cellG;
+        parent[cell] = cellParent;
+        link(cell, cellF);
+        generated++;
+    }
+
+    /**
+     * Puts the cell into the bucket of f, clamped to the ring.
+     */
+    private void link(int cell, int f) {
+        f = Math.min(Math.max(f, cursor), cursor + MASK);
+        key[cell] = f;
+        int bucket = f & MASK;
+        int head = bucketHead[bucket];
+        next[cell] = head;
+        previous[cell] = NONE;
+        if (head != NONE) {
+            previous[head] = cell;
+        }
+        bucketHead[bucket] = cell;
+        if (++openSize > peakOpenSize) {
+            peakOpenSize = openSize;
+        }
+    }
+
+    private void unlink(int cell) {
+        int before = previous[cell];
+        int after = next[cell];
+        if (before == NONE) {
+            bucketHead[key[cell] & MASK] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+        openSize--;
+    }
+
+    /**
+     * Removes a cell with the lowest f from the open set and closes it.
+     */
+    private int poll() {
+        while (bucketHead[cursor & MASK] == NONE) {
+            cursor++;
+        }
+        int cell = bucketHead[cursor & MASK];
+        unlink(cell);
+        key[cell] = CLOSED;
+        expanded++;
+        return cell;
+    }
+
+    private int[] buildPath(int startCell, int endCell) {
+        int length = 1;
+        for (int cell = endCell; cell != startCell; cell = parent[cell]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int cell = endCell; length > 0; cell = parent[cell]) {
+            path[--length] = cell;
+        }
+        return path;
+    }
+}
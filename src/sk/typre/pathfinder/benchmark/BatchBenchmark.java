@@ -0,0 +1,54 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.BatchSolver;
+import sk.typre.pathfinder.BitGrid;
+import sk.typre.pathfinder.PathQuery;
+import sk.typre.pathfinder.PathResult;
+import sk.typre.pathfinder.SearchOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the {@link BatchSolver} throughput with 1 up to the number of available cores, solving
+ * random queries on one shared generated map.
+ * <p>
+ * Usage: {@code BatchBenchmark [size] [queries]}, the defaults are 512 and 2000.
+ */
+public class BatchBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        BitGrid grid = MazeGenerator.random(size, size, 0.2, 42);
+        SearchOptions options = new SearchOptions(true);
+        Random random = new Random(7);
+        List<PathQuery> queries = new ArrayList<>(count);
+        while (queries.size() < count) {
+            int start = random.nextInt(grid.getCellCount());
+            int destiny = random.nextInt(grid.getCellCount());
+            if (!grid.isSolid(start) && !grid.isSolid(destiny)) {
+                queries.add(new PathQuery(grid, start, destiny, options));
+            }
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-8s %10s %14s %8s%n", "threads", "time ms", "queries/s", "found");
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                BatchSolver solver = new BatchSolver(pool);
+                solver.solveAll(queries).join();
+                long time = System.nanoTime();
+                List<PathResult> results = solver.solveAll(queries).join();
+                long nanos = System.nanoTime() - time;
+                long found = results.stream().filter(PathResult::isFound).count();
+                System.out.printf("%-8d %10.1f %14.0f %8d%n", threads, nanos / 1e6, count / (nanos / 1e9), found);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
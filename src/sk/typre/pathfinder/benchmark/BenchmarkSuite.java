@@ -0,0 +1,371 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.AStarAlgorithm;
+import sk.typre.pathfinder.AStarSearch;
+import sk.typre.pathfinder.BidirectionalSearch;
+import sk.typre.pathfinder.BinaryMapFile;
+import sk.typre.pathfinder.BitGrid;
+import sk.typre.pathfinder.ClusterMap;
+import sk.typre.pathfinder.DistanceField;
+import sk.typre.pathfinder.DynamicPlanner;
+import sk.typre.pathfinder.FindPathInputReaderBinary;
+import sk.typre.pathfinder.FindPathInputReaderFile;
+import sk.typre.pathfinder.FlowField;
+import sk.typre.pathfinder.Grid;
+import sk.typre.pathfinder.HierarchicalSearch;
+import sk.typre.pathfinder.JumpPointSearch;
+import sk.typre.pathfinder.Maze;
+import sk.typre.pathfinder.PathQuery;
+import sk.typre.pathfinder.PathRenderer;
+import sk.typre.pathfinder.PathResult;
+import sk.typre.pathfinder.PathSolver;
+import sk.typre.pathfinder.SearchOptions;
+import sk.typre.pathfinder.TerrainCosts;
+import sk.typre.pathfinder.WeightedSearch;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmarks the solvers, the map loaders and the renderer on the bundled mazes and on seeded generated
+ * maps of increasing size and obstacle density and serpentine corridors, in 4-way and diagonal mode.
+ * <p>
+ * On the random maps of every size with 20% obstacles it also measures the engines for special workloads
+ * against A* on the same queries: the cluster map, flow field and distance field preprocessing, routing many
+ * units to one destiny, the nearest of many destinies, terrain costs, and replanning after a few cells change
+ * with the {@link DynamicPlanner} and the cluster map update.
+ * <p>
+ * Every benchmark is warmed up and then measured over several iterations, each one repeating the operation
+ * for at least {@value #ITERATION_NANOS} ns. The report has the average time per operation and the bytes
+ * allocated per operation and per second, read from the thread allocation counter of the JVM, so
+ * regressions in speed and in garbage show up as numbers.
+ * <p>
+ * Usage: {@code BenchmarkSuite [-sizes 256,512,1024] [-densities 0.1,0.2,0.3] [-csv results.csv] [maze.txt...]}
+ */
+public class BenchmarkSuite {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 200_000_000L;
+    private static final long MAPPED_OPERATIONS = 200;
+    private static final double ENGINE_DENSITY = 0.2;
+    private static final int UNITS = 1000;
+    private static final int TARGETS = 100;
+    private static final int CELLS_PER_EDIT = 3;
+
+    /**
+     * Keeps the results of the measured operations alive.
+     */
+    private static volatile Object sink;
+
+    private final List<String[]> rows = new ArrayList<>();
+
+    /**
+     * A benchmarked operation.
+     */
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {256, 512, 1024};
+        double[] densities = {0.1, 0.2, 0.3};
+        String csv = null;
+        List<String> mazes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-sizes")) {
+                String[] values = args[++i].split(",");
+                sizes = new int[values.length];
+                for (int n = 0; n < values.length; n++) {
+                    sizes[n] = Integer.parseInt(values[n].trim());
+                }
+            } else if (args[i].equals("-densities")) {
+                String[] values = args[++i].split(",");
+                densities = new double[values.length];
+                for (int n = 0; n < values.length; n++) {
+                    densities[n] = Double.parseDouble(values[n].trim());
+                }
+            } else if (args[i].equals("-csv")) {
+                csv = args[++i];
+            } else {
+                mazes.add(args[i]);
+            }
+        }
+        if (mazes.isEmpty()) {
+            for (String name : new String[]{"maze1.txt", "maze2.txt"}) {
+                if (new File(name).exists()) {
+                    mazes.add(name);
+                }
+            }
+        }
+
+        BenchmarkSuite suite = new BenchmarkSuite();
+        System.out.printf(Locale.ROOT, "%-12s %-22s %-9s %-18s %14s %12s %14s %10s%n",
+                "benchmark", "map", "mode", "subject", "us/op", "ops/s", "bytes/op", "MB/s");
+        for (String name : mazes) {
+            File file = new File(name);
+            suite.runMap(file.getName(), file);
+        }
+        for (int size : sizes) {
+            for (double density : densities) {
+                Grid grid = MazeGenerator.random(size, size, density, 42);
+                File file = File.createTempFile("pathfinder-" + size, ".txt");
+                file.deleteOnExit();
+                writeTextMap(grid, file);
+                suite.runMap(size + "x" + size + " " + Math.round(density * 100) + "%", file);
+            }
+            File file = File.createTempFile("pathfinder-" + size, ".txt");
+            file.deleteOnExit();
+            writeTextMap(MazeGenerator.corridors(size, size), file);
+            suite.runMap(size + "x" + size + " corridors", file);
+            suite.runEngines(size + "x" + size + " " + Math.round(ENGINE_DENSITY * 100) + "%", size);
+        }
+        if (csv != null) {
+            suite.writeCsv(new File(csv));
+        }
+    }
+
+    /**
+     * Runs the loader, solver and renderer benchmarks on one map file.
+     */
+    private void runMap(String map, File file) throws Exception {
+        Maze maze = new FindPathInputReaderFile(file).getMaze();
+        if (maze == null || maze.getStartPoint() == null || maze.getDestinyPoint() == null) {
+            System.out.println(map + ": wrong map format.");
+            return;
+        }
+        File binary = File.createTempFile("pathfinder", ".pfm");
+        binary.deleteOnExit();
+        BinaryMapFile.write(maze, binary);
+
+        measure("load", map, "-", "text reader", () -> new FindPathInputReaderFile(file).getMaze());
+        //Every load maps the file again and mappings are only released by the GC, keep their number low
+        measure("load", map, "-", "mapped reader", MAPPED_OPERATIONS, () -> new FindPathInputReaderBinary(binary).getMaze());
+
+        Grid grid = maze.getGrid();
+        Point start = maze.getStartPoint();
+        Point destiny = maze.getDestinyPoint();
+        int startCell = grid.cell(start.y, start.x);
+        int destinyCell = grid.cell(destiny.y, destiny.x);
+        AStarSearch aStar = new AStarSearch();
+        JumpPointSearch jumpPoint = new JumpPointSearch();
+        BidirectionalSearch alternating = new BidirectionalSearch(false);
+        BidirectionalSearch parallel = new BidirectionalSearch(true);
+        for (boolean diagonal : new boolean[]{false, true}) {
+            String mode = diagonal ? "diagonal" : "4-way";
+            measure("solve", map, mode, "getPath", () -> AStarAlgorithm.getPath(grid, new int[]{start.y, start.x}, new int[]{destiny.y, destiny.x}, diagonal));
+            measure("solve", map, mode, "AStarSearch", () -> aStar.findPath(grid, startCell, destinyCell, diagonal));
+            measure("solve", map, mode, "JumpPointSearch", () -> jumpPoint.findPath(grid, startCell, destinyCell, diagonal));
+            measure("solve", map, mode, "Bidirectional", () -> alternating.findPath(grid, startCell, destinyCell, diagonal));
+            measure("solve", map, mode, "Bidirectional 2T", () -> parallel.findPath(grid, startCell, destinyCell, diagonal));
+
+            PathResult result = new PathSolver().solve(new PathQuery(grid, startCell, destinyCell, new SearchOptions(diagonal)));
+            if (result.isFound()) {
+                PathRenderer renderer = new PathRenderer();
+                measure("render", map, mode, "getSolvedMap", () -> renderer.getSolvedMap(result));
+            }
+        }
+    }
+
+    /**
+     * Runs the benchmarks of the preprocessing engines and of the engines for many queries, terrain costs and
+     * changing maps on a generated map, each next to A* solving the same queries.
+     */
+    private void runEngines(String map, int size) throws Exception {
+        BitGrid grid = MazeGenerator.random(size, size, ENGINE_DENSITY, 42);
+        int end = grid.getCellCount() - 1;
+        Random random = new Random(7);
+        Cells units = new Cells(randomAir(grid, random, UNITS));
+        Cells queries = new Cells(randomAir(grid, random, UNITS * 2));
+        int destiny = randomAir(grid, random, 1)[0];
+        int[] targets = randomAir(grid, random, TARGETS);
+        byte[] costs = new byte[grid.getCellCount()];
+        Arrays.fill(costs, (byte) TerrainCosts.MIN_COST);
+        TerrainCosts uniform = new TerrainCosts(size, size, costs);
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = (byte) (TerrainCosts.MIN_COST + random.nextInt(TerrainCosts.MAX_COST));
+        }
+        TerrainCosts terrain = new TerrainCosts(size, size, costs);
+        AStarSearch aStar = new AStarSearch();
+        HierarchicalSearch hierarchical = new HierarchicalSearch();
+        WeightedSearch weighted = new WeightedSearch();
+        for (boolean diagonal : new boolean[]{false, true}) {
+            String mode = diagonal ? "diagonal" : "4-way";
+            measure("preprocess", map, mode, "ClusterMap", () -> ClusterMap.build(grid, ClusterMap.DEFAULT_CLUSTER_SIZE, diagonal));
+            measure("preprocess", map, mode, "FlowField", () -> FlowField.compute(grid, destiny, diagonal));
+            measure("preprocess", map, mode, "DistanceField", () -> DistanceField.compute(grid, 0, diagonal));
+
+            measure("query", map, mode, "AStarSearch", () -> aStar.findPath(grid, queries.next(), queries.next(), diagonal));
+            grid.getClusterMap(diagonal);
+            measure("query", map, mode, "HierarchicalSearch", () -> hierarchical.findPath(grid, queries.next(), queries.next(), diagonal));
+
+            measure("route", map, mode, "AStarSearch", () -> aStar.findPath(grid, units.next(), destiny, diagonal));
+            FlowField field = FlowField.compute(grid, destiny, diagonal);
+            measure("route", map, mode, "FlowField", () -> field.getPath(units.next()));
+
+            measure("nearest", map, mode, "DistanceField", () -> DistanceField.nearest(grid, 0, targets, diagonal));
+
+            measure("weighted", map, mode, "AStarSearch", () -> aStar.findPath(grid, 0, end, diagonal));
+            measure("weighted", map, mode, "uniform costs", () -> weighted.findPath(grid, uniform, 0, end, diagonal));
+            measure("weighted", map, mode, "random costs", () -> weighted.findPath(grid, terrain, 0, end, diagonal));
+
+            BitGrid changing = MazeGenerator.random(size, size, ENGINE_DENSITY, 42);
+            changing.getClusterMap(diagonal);
+            Random changes = new Random(11);
+            measure("update", map, mode, "ClusterMap", () -> {
+                int y = changes.nextInt(size);
+                int x = changes.nextInt(size);
+                changing.setSolid(y, x, !changing.isSolid(y, x));
+                return changing.getClusterMap(diagonal);
+            });
+            measure("update", map, mode, "DynamicPlanner", new Replan(new DynamicPlanner(
+                    MazeGenerator.random(size, size, ENGINE_DENSITY, 42), 0, end, diagonal)));
+        }
+    }
+
+    /**
+     * @return random air cells of the grid.
+     */
+    private static int[] randomAir(Grid grid, Random random, int count) {
+        int[] cells = new int[count];
+        for (int i = 0; i < count; i++) {
+            do {
+                cells[i] = random.nextInt(grid.getCellCount());
+            } while (grid.isSolid(cells[i]));
+        }
+        return cells;
+    }
+
+    private void measure(String benchmark, String map, String mode, String subject, Operation operation) throws Exception {
+        measure(benchmark, map, mode, subject, Long.MAX_VALUE, operation);
+    }
+
+    private void measure(String benchmark, String map, String mode, String subject, long maxOperations, Operation operation) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation, maxOperations);
+        }
+        long operations = 0;
+        long nanos = 0;
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operations += iteration(operation, maxOperations);
+            nanos += System.nanoTime() - start;
+        }
+        bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+        double microsPerOperation = nanos / 1e3 / operations;
+        double operationsPerSecond = operations / (nanos / 1e9);
+        double bytesPerOperation = (double) bytes / operations;
+        double megabytesPerSecond = bytes / 1048576.0 / (nanos / 1e9);
+        System.out.printf(Locale.ROOT, "%-12s %-22s %-9s %-18s %14.2f %12.1f %14.0f %10.1f%n",
+                benchmark, map, mode, subject, microsPerOperation, operationsPerSecond, bytesPerOperation, megabytesPerSecond);
+        rows.add(new String[]{benchmark, map, mode, subject,
+                String.format(Locale.ROOT, "%.3f", microsPerOperation),
+                String.format(Locale.ROOT, "%.1f", operationsPerSecond),
+                String.format(Locale.ROOT, "%.0f", bytesPerOperation),
+                String.format(Locale.ROOT, "%.1f", megabytesPerSecond)});
+    }
+
+    /**
+     * Repeats the operation for at least ITERATION_NANOS or until maxOperations are run.
+     *
+     * @return the number of operations run.
+     */
+    private static long iteration(Operation operation, long maxOperations) throws Exception {
+        long end = System.nanoTime() + ITERATION_NANOS;
+        long operations = 0;
+        do {
+            sink = operation.run();
+            operations++;
+        } while (System.nanoTime() < end && operations < maxOperations);
+        return operations;
+    }
+
+    /**
+     * Hands out the cells in turn, so the repeated operation does not solve the same query again.
+     */
+    private static final class Cells {
+        private final int[] cells;
+        private int next;
+
+        Cells(int[] cells) {
+            this.cells = cells;
+        }
+
+        int next() {
+            int cell = cells[next];
+            next = next + 1 < cells.length ? next + 1 : 0;
+            return cell;
+        }
+    }
+
+    /**
+     * Turns a few cells of the current path solid and replans, the next run opens them again and replans,
+     * so the map does not fill up over the iterations.
+     */
+    private static final class Replan implements Operation {
+        private final DynamicPlanner planner;
+        private final Random random = new Random(7);
+        private final int[] edited = new int[CELLS_PER_EDIT];
+        private int[] path;
+        private boolean blocked;
+
+        Replan(DynamicPlanner planner) {
+            this.planner = planner;
+            this.path = planner.findPath();
+        }
+
+        @Override
+        public Object run() {
+            if (!blocked) {
+                if (path == null || path.length <= 2) {
+                    return path;
+                }
+                for (int i = 0; i < edited.length; i++) {
+                    edited[i] = path[1 + random.nextInt(path.length - 2)];
+                }
+            }
+            blocked = !blocked;
+            int width = planner.getGrid().getWidth();
+            for (int cell : edited) {
+                planner.setCell(cell / width, cell % width, blocked);
+            }
+            path = planner.findPath();
+            return path;
+        }
+    }
+
+    private void writeCsv(File file) throws IOException {
+        try (PrintStream out = new PrintStream(file, "UTF-8")) {
+            out.println("benchmark,map,mode,subject,us_per_op,ops_per_s,bytes_per_op,mb_per_s");
+            for (String[] row : rows) {
+                out.println(String.join(",", row));
+            }
+        }
+    }
+
+    private static void writeTextMap(Grid grid, File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            int last = grid.getCellCount() - 1;
+            for (int y = 0; y < grid.getHeight(); y++) {
+                for (int x = 0; x < grid.getWidth(); x++) {
+                    int cell = grid.cell(y, x);
+                    writer.write(cell == 0 ? 'S' : cell == last ? 'X' : grid.isSolid(cell) ? '#' : '.');
+                }
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.AStarSearch;
+import sk.typre.pathfinder.FindPathInputReaderFile;
+import sk.typre.pathfinder.Grid;
+import sk.typre.pathfinder.Heuristic;
+import sk.typre.pathfinder.Maze;
+import sk.typre.pathfinder.StandardHeuristic;
+import sk.typre.pathfinder.WeightedHeuristic;
+
+import java.io.File;
+
+/**
+ * Reports the expanded cells, time and path length of {@link AStarSearch} for every heuristic,
+ * on the map files given as arguments and on seeded generated maps.
+ * <p>
+ * Usage: {@code HeuristicBenchmark [map.txt...]}
+ */
+public class HeuristicBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%-16s %-9s %-16s %10s %12s %8s%n", "map", "mode", "heuristic", "time ms", "expanded", "length");
+        for (String name : args) {
+            Maze maze = new FindPathInputReaderFile(new File(name)).getMaze();
+            if (maze == null || maze.getStartPoint() == null || maze.getDestinyPoint() == null) {
+                System.out.println(name + ": wrong map format.");
+                continue;
+            }
+            Grid grid = maze.getGrid();
+            run(new File(name).getName(), grid, grid.cell(maze.getStartPoint().y, maze.getStartPoint().x),
+                    grid.cell(maze.getDestinyPoint().y, maze.getDestinyPoint().x));
+        }
+        for (double density : new double[]{0.05, 0.2}) {
+            Grid grid = MazeGenerator.random(1024, 1024, density, 42);
+            run("1024x1024 " + Math.round(density * 100) + "%", grid, 0, grid.getCellCount() - 1);
+        }
+    }
+
+    private static void run(String map, Grid grid, int start, int end) {
+        AStarSearch search = new AStarSearch();
+        for (boolean diagonal : new boolean[]{false, true}) {
+            Heuristic admissible = StandardHeuristic.forMovement(diagonal);
+            Heuristic[] heuristics = {
+                    StandardHeuristic.MANHATTAN,
+                    StandardHeuristic.CHEBYSHEV,
+                    StandardHeuristic.OCTILE,
+                    StandardHeuristic.EUCLIDEAN,
+                    new WeightedHeuristic(admissible, 1.5),
+                    new WeightedHeuristic(admissible, 2),
+                    new WeightedHeuristic(admissible, 5)
+            };
+            for (Heuristic heuristic : heuristics) {
+                int[] path = null;
+                long best = Long.MAX_VALUE;
+                for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                    long time = System.nanoTime();
+                    path = search.findPath(grid, start, end, diagonal, heuristic);
+                    best = Math.min(best, System.nanoTime() - time);
+                }
+                System.out.printf("%-16s %-9s %-16s %10.2f %12d %8s%n", map, diagonal ? "diagonal" : "4-way", heuristic,
+                        best / 1e6, search.getExpandedCount(), path == null ? "none" : String.valueOf(path.length - 1));
+            }
+        }
+    }
+}
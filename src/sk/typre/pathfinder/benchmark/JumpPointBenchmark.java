@@ -0,0 +1,63 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.AStarSearch;
+import sk.typre.pathfinder.BitGrid;
+import sk.typre.pathfinder.JumpPointSearch;
+
+/**
+ * Compares {@link JumpPointSearch} with {@link AStarSearch} on open and cluttered generated maps,
+ * solving from the top-left to the bottom-right corner.
+ * <p>
+ * Usage: {@code JumpPointBenchmark [size...]}, the default sizes are 512, 1024 and 2048.
+ */
+public class JumpPointBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) {
+        int[] sizes = {512, 1024, 2048};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        AStarSearch aStar = new AStarSearch();
+        JumpPointSearch jumpPoint = new JumpPointSearch();
+        System.out.printf("%-10s %-10s %-9s %-13s %10s %12s %8s%n", "map", "obstacles", "mode", "engine", "time ms", "expanded", "length");
+        for (int size : sizes) {
+            for (double density : new double[]{0.05, 0.2}) {
+                BitGrid grid = MazeGenerator.random(size, size, density, 42);
+                int start = 0;
+                int end = grid.getCellCount() - 1;
+                for (boolean diagonal : new boolean[]{false, true}) {
+                    String map = size + "x" + size;
+                    String obstacles = Math.round(density * 100) + "%";
+                    String mode = diagonal ? "diagonal" : "4-way";
+
+                    int[] path = null;
+                    long best = Long.MAX_VALUE;
+                    for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                        long time = System.nanoTime();
+                        path = aStar.findPath(grid, start, end, diagonal);
+                        best = Math.min(best, System.nanoTime() - time);
+                    }
+                    print(map, obstacles, mode, "A*", best, aStar.getExpandedCount(), path);
+
+                    best = Long.MAX_VALUE;
+                    for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                        long time = System.nanoTime();
+                        path = jumpPoint.findPath(grid, start, end, diagonal);
+                        best = Math.min(best, System.nanoTime() - time);
+                    }
+                    print(map, obstacles, mode, "Jump point", best, jumpPoint.getExpandedCount(), path);
+                }
+            }
+        }
+    }
+
+    private static void print(String map, String obstacles, String mode, String engine, long nanos, int expanded, int[] path) {
+        System.out.printf("%-10s %-10s %-9s %-13s %10.2f %12d %8s%n", map, obstacles, mode, engine, nanos / 1e6, expanded,
+                path == null ? "none" : String.valueOf(path.length - 1));
+    }
+}
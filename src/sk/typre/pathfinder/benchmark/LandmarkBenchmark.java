@@ -0,0 +1,77 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.AStarSearch;
+import sk.typre.pathfinder.BitGrid;
+import sk.typre.pathfinder.Landmarks;
+import sk.typre.pathfinder.StandardHeuristic;
+
+import java.util.Random;
+
+/**
+ * Compares {@link AStarSearch} with the MANHATTAN or OCTILE heuristic and with {@link Landmarks} of several
+ * sizes on repeated queries between random cells of one map, the preprocessing time, the table size, the
+ * expanded cells and the query time. The summed path lengths must be the same in every row.
+ * <p>
+ * Usage: {@code LandmarkBenchmark [size [queries]]}, the defaults are 1024 and 200.
+ */
+public class LandmarkBenchmark {
+    private static final int[] COUNTS = {2, 4, 8, 16};
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        System.out.printf("%-14s %-9s %-10s %10s %10s %14s %10s %12s%n",
+                "map", "mode", "heuristic", "build ms", "MiB", "expanded", "query ms", "length");
+        run("random 20%", MazeGenerator.random(size, size, 0.2, 42), queryCount);
+        run("corridors", MazeGenerator.corridors(size, size), queryCount);
+    }
+
+    private static void run(String map, BitGrid grid, int queryCount) {
+        int[] queries = new int[queryCount * 2];
+        Random random = new Random(7);
+        for (int i = 0; i < queries.length; i++) {
+            do {
+                queries[i] = random.nextInt(grid.getCellCount());
+            } while (grid.isSolid(queries[i]));
+        }
+        AStarSearch search = new AStarSearch();
+        for (boolean diagonal : new boolean[]{false, true}) {
+            String mode = diagonal ? "diagonal" : "4-way";
+            grid.setLandmarks(null);
+            query(search, grid, queries, diagonal);
+            report(map, mode, StandardHeuristic.forMovement(diagonal).toString(), 0, 0, search, grid, queries, diagonal);
+            for (int count : COUNTS) {
+                long time = System.nanoTime();
+                Landmarks landmarks = Landmarks.build(grid, count, diagonal);
+                long buildNanos = System.nanoTime() - time;
+                grid.setLandmarks(landmarks);
+                query(search, grid, queries, diagonal);
+                report(map, mode, "ALT " + landmarks.getCount(), buildNanos, landmarks.getMemoryBytes(), search, grid, queries, diagonal);
+            }
+            grid.setLandmarks(null);
+        }
+    }
+
+    private static void report(String map, String mode, String heuristic, long buildNanos, long bytes,
+                               AStarSearch search, BitGrid grid, int[] queries, boolean diagonal) {
+        long time = System.nanoTime();
+        long[] totals = query(search, grid, queries, diagonal);
+        long queryNanos = System.nanoTime() - time;
+        System.out.printf("%-14s %-9s %-10s %10.1f %10.1f %14d %10.3f %12d%n", map, mode, heuristic, buildNanos / 1e6,
+                bytes / (1024.0 * 1024.0), totals[0], queryNanos / 1e6 / (queries.length / 2), totals[1]);
+    }
+
+    /**
+     * @return the expanded cells and the path lengths summed over the queries.
+     */
+    private static long[] query(AStarSearch search, BitGrid grid, int[] queries, boolean diagonal) {
+        long expanded = 0;
+        long length = 0;
+        for (int i = 0; i < queries.length; i += 2) {
+            int[] path = search.findPath(grid, queries[i], queries[i + 1], diagonal);
+            expanded += search.getExpandedCount();
+            length += path == null ? 0 : path.length - 1;
+        }
+        return new long[]{expanded, length};
+    }
+}
@@ -0,0 +1,60 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.BitGrid;
+
+import java.util.Random;
+
+/**
+ * Seeded random maps for the benchmarks.
+ */
+public class MazeGenerator {
+
+    private MazeGenerator() {
+    }
+
+    /**
+     * Creates a map with randomly placed solid cells, the top-left and bottom-right corners are kept air.
+     *
+     * @param width   Map width.
+     * @param height  Map height.
+     * @param density Probability of a cell being solid, from 0 to 1.
+     * @param seed    Random seed, the same seed gives the same map.
+     * @return the generated grid.
+     */
+    public static BitGrid random(int width, int height, double density, long seed) {
+        Random random = new Random(seed);
+        BitGrid grid = new BitGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextDouble() < density) {
+                    grid.setSolid(y, x, true);
+                }
+            }
+        }
+        grid.setSolid(0, 0, false);
+        grid.setSolid(height - 1, width - 1, false);
+        return grid;
+    }
+
+    /**
+     * Creates a serpentine map of horizontal corridors three cells high, separated by walls with a gap
+     * at alternating ends, so the only way from the top-left to the bottom-right corner runs through
+     * every corridor.
+     *
+     * @param width  Map width.
+     * @param height Map height.
+     * @return the generated grid.
+     */
+    public static BitGrid corridors(int width, int height) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int y = 3; y < height - 1; y += 4) {
+            int gap = (y >> 2 & 1) == 0 ? width - 1 : 0;
+            for (int x = 0; x < width; x++) {
+                if (x != gap) {
+                    grid.setSolid(y, x, true);
+                }
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,101 @@
+package sk.typre.pathfinder.benchmark;
+
+import sk.typre.pathfinder.BitGrid;
+import sk.typre.pathfinder.SolverServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the latency of the {@link SolverServer} under many concurrent clients. One map is uploaded first,
+ * then every client sends SOLVE requests between random cells of it, one request at a time.
+ * <p>
+ * Usage: {@code ServerBenchmark [clients [requests [size]]]}, the defaults are 32 clients, 200 requests each
+ * and a 512x512 map.
+ */
+public class ServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int requestCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+        BitGrid grid = MazeGenerator.random(size, size, 0.2, 42);
+
+        try (SolverServer server = new SolverServer(0)) {
+            server.start();
+            try (Socket socket = new Socket(server.getAddress(), server.getPort())) {
+                Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                writer.write("MAP bench " + size + " " + size + "\n");
+                char[] row = new char[size + 1];
+                row[size] = '\n';
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        row[x] = grid.isSolid(y, x) ? '#' : '.';
+                    }
+                    writer.write(row);
+                }
+                writer.flush();
+                System.out.println(reader.readLine());
+            }
+
+            long[] latencies = new long[clientCount * requestCount];
+            AtomicInteger busy = new AtomicInteger();
+            AtomicInteger errors = new AtomicInteger();
+            List<Thread> clients = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clientCount; c++) {
+                int client = c;
+                Thread thread = new Thread(() -> {
+                    Random random = new Random(client);
+                    try (Socket socket = new Socket(server.getAddress(), server.getPort())) {
+                        socket.setTcpNoDelay(true);
+                        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                        for (int i = 0; i < requestCount; i++) {
+                            int[] points = new int[4];
+                            for (int p = 0; p < 4; p += 2) {
+                                do {
+                                    points[p] = random.nextInt(size);
+                                    points[p + 1] = random.nextInt(size);
+                                } while (grid.isSolid(points[p + 1], points[p]));
+                            }
+                            long time = System.nanoTime();
+                            writer.write("SOLVE bench " + points[0] + " " + points[1] + " " + points[2] + " " + points[3] + " diagonal\n");
+                            writer.flush();
+                            String response = reader.readLine();
+                            latencies[client * requestCount + i] = System.nanoTime() - time;
+                            if (response == null || response.startsWith("ERR")) {
+                                errors.incrementAndGet();
+                            } else if (response.equals("BUSY")) {
+                                busy.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                });
+                thread.start();
+                clients.add(thread);
+            }
+            for (Thread thread : clients) {
+                thread.join();
+            }
+            long total = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            System.out.printf("clients=%d requests=%d busy=%d errors=%d throughput=%.0f/s p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    clientCount, latencies.length, busy.get(), errors.get(), latencies.length / (total / 1e9),
+                    latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                    latencies[latencies.length - 1] / 1e6);
+        }
+    }
+}